@@ -0,0 +1,155 @@
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * zip / jar еһĿ· a.jar!/dir/B.javaԺͨļһУ
+ * С޸ʱȡĿڼ档
+ * getPath()  getAbsolutePath() ԭ·ѹڲķָʼΪ /
+ *  File ·һ Windows ϱתΪ \
+ * <p>
+ * ѹĿͬһ ZipFileԱ߳ͬʱȡǶѹֻܰ˳ȡ
+ * ĿڶȡѹʱѾڴ档
+ */
+final class ArchiveEntry extends File {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Archive archive;
+    private final transient ZipEntry entry;
+    private final transient byte[] content;
+    /**
+     * ʾͻʹõ·ѹΪ·
+     */
+    private final String path;
+    private final long size;
+    private final long time;
+
+    /**
+     * ѹеĿ archive һãȡҪ release()
+     */
+    ArchiveEntry(String path, Archive archive, ZipEntry entry) {
+        super(path);
+        this.path = path;
+        this.archive = archive;
+        this.entry = entry;
+        this.content = null;
+        this.size = entry.getSize();
+        this.time = entry.getTime();
+        archive.acquire();
+    }
+
+    /**
+     * ǶѹѾڴĿ
+     */
+    ArchiveEntry(String path, byte[] content, long time) {
+        super(path);
+        this.path = path;
+        this.archive = null;
+        this.entry = null;
+        this.content = content;
+        this.size = content.length;
+        this.time = time;
+    }
+
+    /**
+     * ļǷΪ zip / jar ѹ
+     */
+    static boolean isArchive(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".zip") || name.endsWith(".jar");
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String getAbsolutePath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    @Override
+    public long length() {
+        return size;
+    }
+
+    @Override
+    public long lastModified() {
+        return time;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    /**
+     * Ŀݣѹ
+     */
+    InputStream open() throws IOException {
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        }
+        return archive.zipFile.getInputStream(entry);
+    }
+
+    /**
+     * ȡĿ
+     */
+    byte[] read() throws IOException {
+        if (content != null) {
+            return content;
+        }
+        try (InputStream in = open()) {
+            return in.readAllBytes();
+        }
+    }
+
+    void release() {
+        if (archive != null) {
+            archive.release();
+        }
+    }
+
+    /**
+     * Ŀ ZipFileһͷʱر
+     */
+    static final class Archive {
+        final ZipFile zipFile;
+        /**
+         * ѹ̱߳һãгĿͷ
+         */
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        Archive(File file) throws IOException {
+            this.zipFile = new ZipFile(file);
+        }
+
+        void acquire() {
+            references.incrementAndGet();
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                try {
+                    zipFile.close();
+                } catch (IOException e) {
+                    System.out.println(e.toString());
+                }
+            }
+        }
+    }
+}
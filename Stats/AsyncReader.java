@@ -0,0 +1,144 @@
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Ԥͳ̴߳ǰļʱһļѾ AsynchronousFileChannel 뻺еĻ
+ * ̶ȡͷִصСֻԤһļļȻͳ߳ӳֶζȡ
+ */
+final class AsyncReader {
+
+    /**
+     * ִжȡص߳ȡɲϵͳɣصֻȡһ
+     */
+    private static final int IO_THREADS = 2;
+
+    private final BufferPool pool;
+    private final ExecutorService executor;
+
+    AsyncReader(int buffers, int bufferSize) {
+        pool = new BufferPool(buffers, bufferSize);
+        executor = Executors.newFixedThreadPool(IO_THREADS, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "stats-io");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    BufferPool getPool() {
+        return pool;
+    }
+
+    /**
+     * ʼȡһļ
+     *
+     * @return ļΪաС޷ʱ nullɵ߰ͨʽȡ
+     */
+    Pending start(File file) {
+        long size = file.length();
+        if (size == 0 || size > pool.getBufferSize()) {
+            return null;
+        }
+        AsynchronousFileChannel channel;
+        try {
+            channel = AsynchronousFileChannel.open(file.toPath(), Collections.singleton(StandardOpenOption.READ),
+                    executor);
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+        Pending pending = new Pending(channel, pool.acquire(), size);
+        pending.read(0);
+        return pending;
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * һڶȡļ
+     */
+    final class Pending implements CompletionHandler<Integer, Long> {
+        private final AsynchronousFileChannel channel;
+        private final ByteBuffer buffer;
+        /**
+         * ʼȡʱļСôֽڻļĩβΪֹ
+         */
+        private final long size;
+        /**
+         * ȡʱΪת bufferȡʧʱΪ null
+         */
+        private final CompletableFuture<ByteBuffer> result = new CompletableFuture<>();
+
+        private Pending(AsynchronousFileChannel channel, ByteBuffer buffer, long size) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.size = size;
+        }
+
+        private void read(long position) {
+            try {
+                channel.read(buffer, position, position, this);
+            } catch (RuntimeException e) {
+                finish(null);
+            }
+        }
+
+        @Override
+        public void completed(Integer read, Long position) {
+            if (read < 0 || position + read >= size) {
+                buffer.flip();
+                finish(buffer);
+            } else {
+                read(position + read);
+            }
+        }
+
+        @Override
+        public void failed(Throwable exc, Long position) {
+            finish(null);
+        }
+
+        private void finish(ByteBuffer content) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                //ֻļرʧܲӰѶȡ
+            }
+            result.complete(content);
+        }
+
+        /**
+         * ȴȡ
+         *
+         * @return ļȫݣʧʱ nullɵ߰ͨʽ¶ȡ
+         */
+        ByteBuffer await() throws InterruptedException {
+            try {
+                return result.get();
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+
+        /**
+         * ʹϣ黹ڶȡɺ
+         */
+        void release() {
+            pool.release(buffer);
+        }
+    }
+}
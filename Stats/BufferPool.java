@@ -0,0 +1,51 @@
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ̶ֱڴ滺ȡ̺߳ͳ֮߳䴫ļʱãÿļһΡ
+ * ʹʱʱڴ滺ΪδУرĴС䡣
+ */
+final class BufferPool {
+
+    private final int bufferSize;
+    private final ArrayBlockingQueue<ByteBuffer> free;
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+
+    BufferPool(int buffers, int bufferSize) {
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            free.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * ȡһյĻȴ
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer != null) {
+            hits.increment();
+            buffer.clear();
+            return buffer;
+        }
+        misses.increment();
+        return ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * 黹ʱĻֱӶ
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            free.offer(buffer);
+        }
+    }
+}
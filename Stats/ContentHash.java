@@ -0,0 +1,89 @@
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * ٵ 64 λǼܹϣжļǷͬ
+ * Էֶ룬ֻֽйأֶηʽ޹ء
+ */
+final class ContentHash {
+
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private long hash = PRIME_1;
+    private long length;
+    /**
+     *  8 ֽڵβݴһ벹
+     */
+    private long pending;
+    private int pendingBytes;
+
+    void reset() {
+        hash = PRIME_1;
+        length = 0;
+        pending = 0;
+        pendingBytes = 0;
+    }
+
+    /**
+     *  buffer  position  limit ֽ֮ڣ޸ buffer  position
+     */
+    void update(ByteBuffer buffer) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        length += limit - position;
+        while (pendingBytes != 0 && position < limit) {
+            pushByte(buffer.get(position++));
+        }
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            while (position + 8 <= limit) {
+                mix(buffer.getLong(position));
+                position += 8;
+            }
+        } finally {
+            buffer.order(order);
+        }
+        while (position < limit) {
+            pushByte(buffer.get(position++));
+        }
+    }
+
+    void update(byte[] bytes, int offset, int length) {
+        update(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    long getValue() {
+        long h = hash;
+        if (pendingBytes != 0) {
+            h = round(h, pending);
+        }
+        h ^= length;
+        h ^= h >>> 33;
+        h *= PRIME_2;
+        h ^= h >>> 29;
+        h *= PRIME_1;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private void pushByte(byte b) {
+        pending |= (b & 0xFFL) << (pendingBytes << 3);
+        if (++pendingBytes == 8) {
+            mix(pending);
+            pending = 0;
+            pendingBytes = 0;
+        }
+    }
+
+    private void mix(long value) {
+        hash = round(hash, value);
+    }
+
+    private static long round(long hash, long value) {
+        hash ^= Long.rotateLeft(value * PRIME_2, 31) * PRIME_1;
+        return Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_2;
+    }
+}
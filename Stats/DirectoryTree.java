@@ -0,0 +1,162 @@
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ļлܵ͵ʴ
+ * <p>
+ * ͳʱÿ̰߳ļĽԼĽڵϣLocalҪͳƽ·ϲ̵߳Ľڵ㣬
+ * ٴҶӿʼϻܣÿһ ForkJoin ֵлܡ
+ * ȸļڶӦȵϼļϣڵֻйء
+ */
+final class DirectoryTree {
+
+    private DirectoryTree() {
+    }
+
+    /**
+     * һļУܺļ
+     */
+    static final class Node {
+        /**
+         * Ա·ʹ / ָΪַ
+         */
+        final String path;
+        final int depth;
+        long files;
+        long lines;
+        long blank;
+        long comment;
+        long code;
+        final WordTable words = new WordTable();
+        final List<Node> children = new ArrayList<>();
+
+        Node(String path) {
+            this.path = path;
+            this.depth = path.isEmpty() ? 0 : path.split("/").length;
+        }
+
+        /**
+         * ·һ
+         */
+        String getName() {
+            return path.isEmpty() ? "." : path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        void addFile(long lineCount, long blankLines, long commentLines, long codeLines) {
+            files++;
+            lines += lineCount;
+            blank += blankLines;
+            comment += commentLines;
+            code += codeLines;
+        }
+
+        void addAll(Node other) {
+            files += other.files;
+            lines += other.lines;
+            blank += other.blank;
+            comment += other.comment;
+            code += other.code;
+            words.addAll(other.words);
+        }
+    }
+
+    /**
+     * ̵߳Ľڵ㣬·棬ļ
+     */
+    static final class Local {
+        private final HashMap<String, Node> nodes = new HashMap<>();
+
+        Node node(String path) {
+            Node node = nodes.get(path);
+            if (node == null) {
+                node = new Node(path);
+                nodes.put(path, node);
+            }
+            return node;
+        }
+    }
+
+    /**
+     * ϲ̵߳Ľڵ㣬¼ϵл
+     *
+     * @return Ľڵ
+     */
+    static Node reduce(List<Local> locals, int threads) {
+        Map<String, List<Node>> parts = new HashMap<>();
+        for (Local local : locals) {
+            for (Node node : local.nodes.values()) {
+                List<Node> list = parts.get(node.path);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    parts.put(node.path, list);
+                }
+                list.add(node);
+            }
+        }
+        Map<String, Node> tree = new HashMap<>();
+        Node root = new Node("");
+        tree.put("", root);
+        for (String path : parts.keySet()) {
+            link(tree, path);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new Rollup(root, parts));
+        } finally {
+            pool.shutdown();
+        }
+        return root;
+    }
+
+    /**
+     * ڵ㼰ȱٵϼڵ
+     */
+    private static Node link(Map<String, Node> tree, String path) {
+        Node node = tree.get(path);
+        if (node != null) {
+            return node;
+        }
+        node = new Node(path);
+        tree.put(path, node);
+        int slash = path.lastIndexOf('/');
+        link(tree, slash < 0 ? "" : path.substring(0, slash)).children.add(node);
+        return node;
+    }
+
+    /**
+     * һȲлļУٺϲ̼߳ڱļеĽļеĽ
+     */
+    private static final class Rollup extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Node node;
+        private final Map<String, List<Node>> parts;
+
+        Rollup(Node node, Map<String, List<Node>> parts) {
+            this.node = node;
+            this.parts = parts;
+        }
+
+        @Override
+        protected void compute() {
+            List<Rollup> tasks = new ArrayList<>(node.children.size());
+            for (Node child : node.children) {
+                tasks.add(new Rollup(child, parts));
+            }
+            invokeAll(tasks);
+            List<Node> own = parts.get(node.path);
+            for (Node part : own != null ? own : Collections.<Node>emptyList()) {
+                node.addAll(part);
+            }
+            for (Node child : node.children) {
+                node.addAll(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ļзֳһΣԺͨļһУɶ߳ͬʱͳơ
+ * <p>
+ * ֶεı߽綼ڻз֮󣬵ʺԸηֱͳƺӡÿεĵȱ Parts.words У
+ * ֱӼɵһڻʱзֶεĵʺϲԼ̵߳ļκһʧʱļ룻
+ * עͺַܿԽֶΣзȼÿδӴ뿪ʼзֶɺ˳飬
+ * 費ķֶֻзࡣ
+ */
+final class FileChunk extends File {
+
+    private static final long serialVersionUID = 1L;
+
+    final transient Parts parts;
+    final int index;
+    final long start;
+    final long end;
+
+    FileChunk(Parts parts, int index) {
+        super(parts.file.getPath());
+        this.parts = parts;
+        this.index = index;
+        this.start = parts.bounds[index];
+        this.end = parts.bounds[index + 1];
+    }
+
+    @Override
+    public long length() {
+        return end - start;
+    }
+
+    /**
+     * ͬһļзֶΣ¼ÿεĽɵһθ
+     */
+    static final class Parts {
+        final File file;
+        /**
+         * ε㣬һԪΪļС
+         */
+        final long[] bounds;
+        /**
+         * зʱʼ״̬ͽʱ״̬ LineClassifier.getCarry()
+         */
+        final int[] startCarry;
+        final int[] endCarry;
+        final long[] lines;
+        final long[] blank;
+        final long[] comment;
+        final long[] code;
+        /**
+         * εĵʣзֶζɺżκһʧʱļĵʶ
+         */
+        final WordTable[] words;
+        private final AtomicInteger remaining;
+        private final AtomicBoolean failed = new AtomicBoolean();
+
+        Parts(File file, long[] bounds) {
+            this.file = file;
+            this.bounds = bounds;
+            int count = bounds.length - 1;
+            startCarry = new int[count];
+            endCarry = new int[count];
+            lines = new long[count];
+            blank = new long[count];
+            comment = new long[count];
+            code = new long[count];
+            words = new WordTable[count];
+            remaining = new AtomicInteger(count);
+        }
+
+        int size() {
+            return bounds.length - 1;
+        }
+
+        /**
+         * ¼һεĽ
+         *
+         * @return ǷΪɵһ
+         */
+        boolean complete(int index, int start, int end, long lineCount, long blankLines, long commentLines,
+                         long codeLines) {
+            startCarry[index] = start;
+            endCarry[index] = end;
+            lines[index] = lineCount;
+            blank[index] = blankLines;
+            comment[index] = commentLines;
+            code[index] = codeLines;
+            return remaining.decrementAndGet() == 0;
+        }
+
+        /**
+         * ĳһ޷ȡļٻ
+         *
+         * @return ǷΪһʧܵķֶ
+         */
+        boolean fail() {
+            return failed.compareAndSet(false, true);
+        }
+    }
+}
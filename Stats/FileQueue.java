@@ -0,0 +1,170 @@
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ̺߳ͳ֮߳нУԪΪһļ
+ * <p>
+ * Ǳȶȡ죬޽лڴлѹ File 󣻶еļﵽ̵߳ȴ
+ * ͳ߳ȡһټͬһļеļΪһ룬һμƽļ
+ * ͳ߳ԼļѹĿļֶΡԵļȴͳ߳̿ܶڵȴλûȡ
+ */
+final class FileQueue {
+
+    private final int capacity;
+    private final ArrayDeque<List<? extends File>> batches = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    /**
+     * еļ
+     */
+    private int size;
+    private int peakSize;
+    private long batchCount;
+    private boolean closed;
+
+    /**
+     * @param capacity ļﵽ put() ȴһļ룬ʵļ೬һ
+     */
+    FileQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * һļʱȴ
+     */
+    void put(List<? extends File> batch) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size >= capacity && !closed) {
+                notFull.await();
+            }
+            enqueue(batch);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * һļͳ߳
+     */
+    void putNow(List<? extends File> batch) {
+        lock.lock();
+        try {
+            enqueue(batch);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(List<? extends File> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        batches.addLast(batch);
+        size += batch.size();
+        batchCount++;
+        if (size > peakSize) {
+            peakSize = size;
+        }
+        notEmpty.signal();
+    }
+
+    /**
+     * ȡһļΪʱȴ
+     *
+     * @return ѹرΪʱ null
+     */
+    List<? extends File> take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (batches.isEmpty()) {
+                if (closed) {
+                    return null;
+                }
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * ȡһļȴ
+     *
+     * @return Ϊʱ null
+     */
+    List<? extends File> poll() {
+        lock.lock();
+        try {
+            return batches.isEmpty() ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<? extends File> dequeue() {
+        List<? extends File> batch = batches.removeFirst();
+        size -= batch.size();
+        if (size < capacity) {
+            notFull.signalAll();
+        }
+        return batch;
+    }
+
+    /**
+     * ļѴ꣬еȴͳ߳˳
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * еļ
+     */
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * йжļ
+     */
+    int getPeakSize() {
+        lock.lock();
+        try {
+            return peakSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getBatchCount() {
+        lock.lock();
+        try {
+            return batchCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+}
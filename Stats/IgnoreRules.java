@@ -0,0 +1,244 @@
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * .gitignore ĺԹÿļеĹӵϼļеĹ¼Ĺȡ
+ * <p>
+ * ֵ֧﷨# ע͡! ȡβ / ֻƥļС / ĹԹڵļƥ䣬
+ * ƥ㼶֣*?[...]**  git ͬ
+ * ڴʱ룬ֺ *.׺ Ĺʹʽ
+ */
+final class IgnoreRules {
+
+    static final IgnoreRules NONE = new IgnoreRules(null, "", new Rule[0]);
+
+    /**
+     * match() Ľûйƥ䡢ԡ ! °
+     */
+    static final int NO_MATCH = 0;
+    static final int IGNORED = 1;
+    static final int INCLUDED = 2;
+
+    private final IgnoreRules parent;
+    /**
+     * ڵļԱ· / βΪַ
+     */
+    private final String base;
+    private final Rule[] rules;
+
+    private IgnoreRules(IgnoreRules parent, String base, Rule[] rules) {
+        this.parent = parent;
+        this.base = base;
+        this.rules = rules;
+    }
+
+    /**
+     * ڵǰ֮һļеĹûЧʱ
+     *
+     * @param base  ڵļԱ· / βΪַ
+     * @param lines .gitignore ÿһ
+     */
+    IgnoreRules child(String base, List<String> lines) {
+        List<Rule> compiled = new ArrayList<>();
+        for (String line : lines) {
+            Rule rule = Rule.compile(line);
+            if (rule != null) {
+                compiled.add(rule);
+            }
+        }
+        if (compiled.isEmpty()) {
+            return this;
+        }
+        return new IgnoreRules(this, base, compiled.toArray(new Rule[0]));
+    }
+
+    /**
+     * жһļļǷ񱻺
+     *
+     * @param path      Ա·ʹ / ָ
+     * @param name      һ
+     * @param directory ǷΪļ
+     */
+    boolean isIgnored(String path, String name, boolean directory) {
+        return match(path, name, directory) == IGNORED;
+    }
+
+    /**
+     *  isIgnored() ͬûйƥͱ ! °ھǷ鿴ȼ͵Ĺ
+     *
+     * @return NO_MATCHIGNORED  INCLUDED
+     */
+    int match(String path, String name, boolean directory) {
+        for (IgnoreRules level = this; level != null; level = level.parent) {
+            String relative = path.startsWith(level.base) ? path.substring(level.base.length()) : path;
+            //ͬһļкĹ
+            for (int i = level.rules.length - 1; i >= 0; i--) {
+                Rule rule = level.rules[i];
+                if (rule.matches(relative, name, directory)) {
+                    return rule.negated ? INCLUDED : IGNORED;
+                }
+            }
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * ĵ
+     */
+    private static final class Rule {
+        private static final int LITERAL = 0;
+        private static final int SUFFIX = 1;
+        private static final int REGEX = 2;
+
+        final boolean negated;
+        final boolean directoryOnly;
+        /**
+         * Ƿƥ·ֻƥ
+         */
+        final boolean anchored;
+        final int kind;
+        final String text;
+        final Pattern pattern;
+
+        private Rule(boolean negated, boolean directoryOnly, boolean anchored, String glob) {
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+            this.anchored = anchored;
+            if (!hasWildcard(glob)) {
+                kind = LITERAL;
+                text = unescape(glob);
+                pattern = null;
+            } else if (!anchored && glob.startsWith("*") && !hasWildcard(glob.substring(1))) {
+                kind = SUFFIX;
+                text = unescape(glob.substring(1));
+                pattern = null;
+            } else {
+                kind = REGEX;
+                text = null;
+                pattern = Pattern.compile(toRegex(glob));
+            }
+        }
+
+        /**
+         * һй򣬿кעͷ null
+         */
+        static Rule compile(String line) {
+            //ȥûתβհ
+            int end = line.length();
+            while (end > 0 && (line.charAt(end - 1) == ' ' || line.charAt(end - 1) == '\t')
+                    && !(end > 1 && line.charAt(end - 2) == '\\')) {
+                end--;
+            }
+            String glob = line.substring(0, end);
+            if (glob.isEmpty() || glob.startsWith("#")) {
+                return null;
+            }
+            boolean negated = false;
+            if (glob.startsWith("!")) {
+                negated = true;
+                glob = glob.substring(1);
+            } else if (glob.startsWith("\\!") || glob.startsWith("\\#")) {
+                glob = glob.substring(1);
+            }
+            boolean directoryOnly = false;
+            if (glob.endsWith("/")) {
+                directoryOnly = true;
+                glob = glob.substring(0, glob.length() - 1);
+            }
+            boolean anchored = glob.indexOf('/') >= 0;
+            if (glob.startsWith("/")) {
+                glob = glob.substring(1);
+            }
+            if (glob.startsWith("**/")) {
+                //㼶ͷ벻 / Ĺͬ
+                String rest = glob.substring(3);
+                if (rest.indexOf('/') < 0) {
+                    glob = rest;
+                    anchored = false;
+                }
+            }
+            if (glob.isEmpty()) {
+                return null;
+            }
+            return new Rule(negated, directoryOnly, anchored, glob);
+        }
+
+        boolean matches(String path, String name, boolean directory) {
+            if (directoryOnly && !directory) {
+                return false;
+            }
+            String value = anchored ? path : name;
+            switch (kind) {
+                case LITERAL:
+                    return value.equals(text);
+                case SUFFIX:
+                    return value.endsWith(text);
+                default:
+                    return pattern.matcher(value).matches();
+            }
+        }
+
+        private static boolean hasWildcard(String glob) {
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c == '*' || c == '?' || c == '[') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String unescape(String glob) {
+            return glob.indexOf('\\') < 0 ? glob : glob.replaceAll("\\\\(.)", "$1");
+        }
+
+        private static String toRegex(String glob) {
+            StringBuilder regex = new StringBuilder();
+            int length = glob.length();
+            for (int i = 0; i < length; i++) {
+                char c = glob.charAt(i);
+                if (c == '*') {
+                    boolean doubleStar = i + 1 < length && glob.charAt(i + 1) == '*';
+                    boolean atStart = i == 0 || glob.charAt(i - 1) == '/';
+                    if (doubleStar && atStart && (i + 2 == length || glob.charAt(i + 2) == '/')) {
+                        if (i + 2 == length) {
+                            //β /** ƥе
+                            regex.append(".*");
+                        } else {
+                            //ͷ **/ м /**/ ƥ༶ļ
+                            regex.append("(?:.*/)?");
+                            i++;
+                        }
+                        i++;
+                    } else {
+                        regex.append("[^/]*");
+                        if (doubleStar) {
+                            i++;
+                        }
+                    }
+                } else if (c == '?') {
+                    regex.append("[^/]");
+                } else if (c == '[') {
+                    int close = glob.indexOf(']', i + 2);
+                    if (close < 0) {
+                        regex.append("\\[");
+                    } else {
+                        String set = glob.substring(i + 1, close);
+                        if (set.startsWith("!")) {
+                            set = "^" + set.substring(1);
+                        }
+                        regex.append('[').append(set.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                        i = close;
+                    }
+                } else if (c == '\\' && i + 1 < length) {
+                    regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return regex.toString();
+        }
+    }
+}
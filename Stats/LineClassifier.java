@@ -0,0 +1,412 @@
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * ֽɨ裬ÿһйΪ롢עͻУ cloc ƣ
+ * ֻпհ׵ΪУעûݵΪעУΪС
+ * ַеעͷŲᱻעͣPython жռһпͷַdocstringע͡
+ * <p>
+ * еĻ WordTokenizer ֮ͬ͵ WordTokenizer ͳƵ
+ */
+final class LineClassifier {
+
+    /**
+     * ׺ֵԼע﷨
+     */
+    enum Language {
+        JAVA("java", true, true, false, false, false),
+        PYTHON("py", false, false, true, false, true),
+        C("c", true, true, false, false, false),
+        CPP("cpp", true, true, false, false, false),
+        CSHARP("cs", true, true, false, false, false),
+        SQL("sql", true, false, false, true, false),
+        JAVASCRIPT("js", true, true, false, false, false),
+        PHP("php", true, true, true, false, false),
+        /**
+         * ׺-f ָʱʶע
+         */
+        OTHER("other", false, false, false, false, false);
+
+        final String label;
+        /**
+         * ֵ֧ע﷨/* *\///#--Լ Python ַ
+         */
+        final boolean blockComment;
+        final boolean slashComment;
+        final boolean hashComment;
+        final boolean dashComment;
+        final boolean tripleQuote;
+
+        Language(String label, boolean blockComment, boolean slashComment, boolean hashComment,
+                 boolean dashComment, boolean tripleQuote) {
+            this.label = label;
+            this.blockComment = blockComment;
+            this.slashComment = slashComment;
+            this.hashComment = hashComment;
+            this.dashComment = dashComment;
+            this.tripleQuote = tripleQuote;
+        }
+
+        /**
+         * ļĺ׺ж
+         */
+        static Language of(String fileName) {
+            int dot = fileName.lastIndexOf('.');
+            String extension = dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+            switch (extension) {
+                case "java":
+                    return JAVA;
+                case "py":
+                    return PYTHON;
+                case "c":
+                    return C;
+                case "cpp":
+                case "cc":
+                    return CPP;
+                case "cs":
+                    return CSHARP;
+                case "sql":
+                    return SQL;
+                case "js":
+                    return JAVASCRIPT;
+                case "php":
+                    return PHP;
+                default:
+                    return OTHER;
+            }
+        }
+    }
+
+    /**
+     * Իܵÿ߳һݣٺϲҪ
+     */
+    static final class Summary {
+        final long[] files = new long[Language.values().length];
+        final long[] blank = new long[Language.values().length];
+        final long[] comment = new long[Language.values().length];
+        final long[] code = new long[Language.values().length];
+
+        void add(Language language, long blankLines, long commentLines, long codeLines) {
+            int i = language.ordinal();
+            files[i]++;
+            blank[i] += blankLines;
+            comment[i] += commentLines;
+            code[i] += codeLines;
+        }
+
+        /**
+         * ȥһļļ仯ɾʱ
+         */
+        void remove(Language language, long blankLines, long commentLines, long codeLines) {
+            int i = language.ordinal();
+            files[i]--;
+            blank[i] -= blankLines;
+            comment[i] -= commentLines;
+            code[i] -= codeLines;
+        }
+
+        void merge(Summary other) {
+            for (int i = 0; i < files.length; i++) {
+                files[i] += other.files[i];
+                blank[i] += other.blank[i];
+                comment[i] += other.comment[i];
+                code[i] += other.code[i];
+            }
+        }
+    }
+
+    private static final int CODE = 0;
+    private static final int LINE_COMMENT = 1;
+    private static final int BLOCK_COMMENT = 2;
+    private static final int STRING = 3;
+    /**
+     * ַԿ
+     */
+    private static final int TRIPLE_STRING = 4;
+    private static final int DOCSTRING = 5;
+
+    private Language language = Language.OTHER;
+    private int state;
+    /**
+     * ֽڵעͷŵĵһֽڣ/  -Ϊ 0 ʱû
+     */
+    private byte pending;
+    /**
+     * ǰַ
+     */
+    private byte quote;
+    /**
+     * ŵĸCODE ʶŵĿʼַʶ
+     */
+    private int quoteRun;
+    private boolean escaped;
+    /**
+     * עһֽǷΪ *
+     */
+    private boolean lastStar;
+    private boolean lineCode;
+    private boolean lineComment;
+    private boolean lineHasBytes;
+    private boolean lastCR;
+    private long blankLines;
+    private long commentLines;
+    private long codeLines;
+
+    /**
+     * ʼһļ
+     */
+    void reset(Language language) {
+        this.language = language;
+        state = CODE;
+        pending = 0;
+        quoteRun = 0;
+        escaped = false;
+        lastStar = false;
+        lineCode = false;
+        lineComment = false;
+        lineHasBytes = false;
+        lastCR = false;
+        blankLines = 0;
+        commentLines = 0;
+        codeLines = 0;
+    }
+
+    /**
+     * һеĿͷͳƣڴļķֶ
+     *
+     * @param carry һνʱ getCarry() ֵ0 ʾӴ뿪ʼ
+     */
+    void reset(Language language, int carry) {
+        reset(language);
+        state = carry & 0xFF;
+        quote = (byte) (carry >> 8);
+        lastStar = (carry & 0x10000) != 0;
+    }
+
+    /**
+     * ׵ãҪһе״̬ĿעͻַţԼעһֽǷΪ *
+     * ڴʱΪ 0
+     */
+    int getCarry() {
+        switch (state) {
+            case BLOCK_COMMENT:
+                return BLOCK_COMMENT | (lastStar ? 0x10000 : 0);
+            case TRIPLE_STRING:
+            case DOCSTRING:
+                return state | ((quote & 0xFF) << 8);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * ɨ buffer  position  limit ֽ֮ڣ޸ buffer  position
+     */
+    void feed(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit; i++) {
+            accept(buffer.get(i));
+        }
+    }
+
+    /**
+     * ļһ
+     */
+    void finish() {
+        if (lineHasBytes) {
+            endLine();
+        }
+    }
+
+    Language getLanguage() {
+        return language;
+    }
+
+    long getBlankLines() {
+        return blankLines;
+    }
+
+    long getCommentLines() {
+        return commentLines;
+    }
+
+    long getCodeLines() {
+        return codeLines;
+    }
+
+    private void accept(byte b) {
+        if (b == '\n') {
+            if (lastCR) {
+                lastCR = false;
+            } else {
+                endLine();
+            }
+            return;
+        }
+        if (b == '\r') {
+            endLine();
+            lastCR = true;
+            return;
+        }
+        lastCR = false;
+        lineHasBytes = true;
+        switch (state) {
+            case LINE_COMMENT:
+                markComment(b);
+                break;
+            case BLOCK_COMMENT:
+                markComment(b);
+                if (lastStar && b == '/') {
+                    state = CODE;
+                    lastStar = false;
+                } else {
+                    lastStar = b == '*';
+                }
+                break;
+            case STRING:
+                lineCode = true;
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == quote) {
+                    state = CODE;
+                }
+                break;
+            case TRIPLE_STRING:
+            case DOCSTRING:
+                if (state == DOCSTRING) {
+                    markComment(b);
+                } else if ((b & 0xFF) > ' ') {
+                    lineCode = true;
+                }
+                if (escaped) {
+                    escaped = false;
+                    quoteRun = 0;
+                } else if (b == '\\') {
+                    escaped = true;
+                    quoteRun = 0;
+                } else if (b == quote) {
+                    if (++quoteRun == 3) {
+                        state = CODE;
+                        quoteRun = 0;
+                    }
+                } else {
+                    quoteRun = 0;
+                }
+                break;
+            default:
+                acceptCode(b);
+                break;
+        }
+    }
+
+    private void acceptCode(byte b) {
+        if (pending != 0) {
+            byte first = pending;
+            pending = 0;
+            if (first == '/' && b == '/' && language.slashComment) {
+                startLineComment();
+                return;
+            }
+            if (first == '/' && b == '*' && language.blockComment) {
+                lineComment = true;
+                lastStar = false;
+                state = BLOCK_COMMENT;
+                return;
+            }
+            if (first == '-' && b == '-') {
+                startLineComment();
+                return;
+            }
+            lineCode = true;
+        }
+        if (quoteRun > 0) {
+            if (b == quote && quoteRun < 3) {
+                if (++quoteRun == 3) {
+                    //֮ǰһûдʱ docstring
+                    if (lineCode) {
+                        state = TRIPLE_STRING;
+                    } else {
+                        state = DOCSTRING;
+                        lineComment = true;
+                    }
+                    quoteRun = 0;
+                    escaped = false;
+                }
+                return;
+            }
+            int run = quoteRun;
+            quoteRun = 0;
+            lineCode = true;
+            if (run == 1) {
+                //ţַͨǰַֽ
+                state = STRING;
+                escaped = false;
+                accept(b);
+                return;
+            }
+            //Ϊַ봦ǰֽ
+        }
+        if ((b & 0xFF) <= ' ') {
+            return;
+        }
+        if ((b == '/' && (language.slashComment || language.blockComment)) || (b == '-' && language.dashComment)) {
+            pending = b;
+            return;
+        }
+        if (b == '#' && language.hashComment) {
+            startLineComment();
+            return;
+        }
+        if (b == '"' || b == '\'' || (b == '`' && language == Language.JAVASCRIPT)) {
+            quote = b;
+            if (language.tripleQuote) {
+                //ţֽپ
+                quoteRun = 1;
+            } else {
+                lineCode = true;
+                state = STRING;
+                escaped = false;
+            }
+            return;
+        }
+        lineCode = true;
+    }
+
+    private void startLineComment() {
+        lineComment = true;
+        state = LINE_COMMENT;
+    }
+
+    private void markComment(byte b) {
+        if ((b & 0xFF) > ' ') {
+            lineComment = true;
+        }
+    }
+
+    private void endLine() {
+        if (state == CODE) {
+            if (pending != 0 || quoteRun > 0) {
+                lineCode = true;
+            }
+            pending = 0;
+        } else if (state == LINE_COMMENT || state == STRING) {
+            //עͺַͨβ
+            state = CODE;
+        }
+        if (lineCode) {
+            codeLines++;
+        } else if (lineComment) {
+            commentLines++;
+        } else {
+            blankLines++;
+        }
+        quoteRun = 0;
+        escaped = false;
+        lineCode = false;
+        lineComment = false;
+        lineHasBytes = false;
+    }
+}
@@ -0,0 +1,152 @@
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * --watch ģʽ³µͳƽÿļͳƼ¼ļ仯ʱȥɼ¼¼¼
+ * <p>
+ * ʰ򱣴 TreeSet УÿʵĴ仯ֻҪ O(log n) λã
+ * ȡǰ k ʲҪеʣһθµĴֻ仯ļСйء
+ * ֻڵ߳ʹá
+ */
+final class LiveStats {
+
+    /**
+     * ʼǰֻڴ ranking Ƴ޸
+     */
+    private static final class Word {
+        final String word;
+        long count;
+
+        Word(String word) {
+            this.word = word;
+        }
+    }
+
+    /**
+     * ļ·ͳƼ¼·ɾļлѹʱ԰ǰ׺ҵļ
+     */
+    private final TreeMap<String, StatsCache.Entry> files = new TreeMap<>();
+    private final HashMap<String, Word> words = new HashMap<>();
+    /**
+     * ִӴСУͬʱĸ˳ TopWords һ
+     */
+    private final TreeSet<Word> ranking = new TreeSet<>((a, b) -> a.count != b.count
+            ? Long.compare(b.count, a.count) : a.word.compareTo(b.word));
+    private final LineClassifier.Summary lineSummary = new LineClassifier.Summary();
+    private long lineCount;
+
+    /**
+     * 滻һļͳƼ¼
+     */
+    void put(String path, StatsCache.Entry entry) {
+        StatsCache.Entry previous = files.put(path, entry);
+        if (previous != null) {
+            apply(path, previous, -1);
+        }
+        apply(path, entry, 1);
+    }
+
+    /**
+     * ƳһļǷ
+     */
+    boolean remove(String path) {
+        StatsCache.Entry previous = files.remove(path);
+        if (previous == null) {
+            return false;
+        }
+        apply(path, previous, -1);
+        return true;
+    }
+
+    /**
+     * Ƴ· prefix ͷļƳĸ
+     */
+    int removePrefix(String prefix) {
+        NavigableMap<String, StatsCache.Entry> range = files.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        List<String> paths = new ArrayList<>(range.keySet());
+        for (String path : paths) {
+            remove(path);
+        }
+        return paths.size();
+    }
+
+    StatsCache.Entry get(String path) {
+        return files.get(path);
+    }
+
+    /**
+     * ǰļ·ĸ
+     */
+    List<String> paths() {
+        return new ArrayList<>(files.keySet());
+    }
+
+    int getFileCount() {
+        return files.size();
+    }
+
+    long getLineCount() {
+        return lineCount;
+    }
+
+    LineClassifier.Summary getLineSummary() {
+        return lineSummary;
+    }
+
+    int getWordCount() {
+        return words.size();
+    }
+
+    /**
+     * ӴСǰ k 
+     */
+    void visitTop(int k, WordCounter.Visitor visitor) {
+        int count = 0;
+        for (Word word : ranking) {
+            if (count++ >= k) {
+                break;
+            }
+            visitor.visit(word.word, word.count);
+        }
+    }
+
+    private void apply(String path, StatsCache.Entry entry, int sign) {
+        LineClassifier.Language language = LineClassifier.Language.of(fileName(path));
+        long codeLines = entry.lineCount - entry.blankLines - entry.commentLines;
+        if (sign > 0) {
+            lineSummary.add(language, entry.blankLines, entry.commentLines, codeLines);
+        } else {
+            lineSummary.remove(language, entry.blankLines, entry.commentLines, codeLines);
+        }
+        lineCount += sign * entry.lineCount;
+        for (int i = 0; i < entry.words.length; i++) {
+            Word word = words.get(entry.words[i]);
+            if (word == null) {
+                word = new Word(entry.words[i]);
+                words.put(word.word, word);
+            } else {
+                ranking.remove(word);
+            }
+            word.count += sign * entry.counts[i];
+            if (word.count > 0) {
+                ranking.add(word);
+            } else {
+                words.remove(word.word);
+            }
+        }
+    }
+
+    /**
+     * ·һ֣ѹеĿ / ָ
+     */
+    private static String fileName(String path) {
+        return path.substring(Math.max(path.lastIndexOf(File.separatorChar), path.lastIndexOf('/')) + 1);
+    }
+}
@@ -0,0 +1,183 @@
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * ƬͳƵĲֽļ̨ͳһֺٺϲ
+ * <p>
+ * ļʽħ汾šָơļԵǰĸ˳еĵʼ
+ * ֻǰһʲͬĺ׺־Ϊ䳤롣򣬺ϲʱԶ·鲢
+ * ֻҪÿļǰһڴС
+ */
+final class PartialResult {
+
+    private static final int MAGIC = 0x53545031;
+    private static final int VERSION = 1;
+
+    private PartialResult() {
+    }
+
+    /**
+     * дʱļ滻
+     */
+    static void write(Path file, String fingerprint, long fileCount, long lineCount,
+                      LineClassifier.Summary lines, WordCounter counter) throws IOException {
+        final String[] words = new String[counter.size()];
+        final long[] counts = new long[words.length];
+        counter.forEach(new WordCounter.Visitor() {
+            int index = 0;
+
+            @Override
+            public void visit(String word, long count) {
+                words[index] = word;
+                counts[index++] = count;
+            }
+        });
+        Integer[] order = new Integer[words.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> words[a].compareTo(words[b]));
+
+        Path parent = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint);
+            StatsCache.writeVarLong(out, fileCount);
+            StatsCache.writeVarLong(out, lineCount);
+            LineClassifier.Language[] languages = LineClassifier.Language.values();
+            StatsCache.writeVarLong(out, languages.length);
+            for (LineClassifier.Language language : languages) {
+                int i = language.ordinal();
+                out.writeUTF(language.name());
+                StatsCache.writeVarLong(out, lines.files[i]);
+                StatsCache.writeVarLong(out, lines.blank[i]);
+                StatsCache.writeVarLong(out, lines.comment[i]);
+                StatsCache.writeVarLong(out, lines.code[i]);
+            }
+            StatsCache.writeVarLong(out, words.length);
+            byte[] previous = new byte[0];
+            for (int index : order) {
+                byte[] word = words[index].getBytes(StandardCharsets.UTF_8);
+                int common = 0;
+                int max = Math.min(previous.length, word.length);
+                while (common < max && previous[common] == word[common]) {
+                    common++;
+                }
+                StatsCache.writeVarLong(out, common);
+                StatsCache.writeVarLong(out, word.length - common);
+                out.write(word, common, word.length - common);
+                StatsCache.writeVarLong(out, counts[index]);
+                previous = word;
+            }
+            out.close();
+            out = null;
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * ˳ȡһֽļʱȡļͷ֮ȡ
+     */
+    static final class Reader implements Closeable {
+        final Path file;
+        final String fingerprint;
+        final long fileCount;
+        final long lineCount;
+        final LineClassifier.Summary lines = new LineClassifier.Summary();
+
+        private final DataInputStream in;
+        private long remaining;
+        private byte[] word = new byte[64];
+        private int wordLength;
+        private String current;
+        private long count;
+
+        Reader(Path file) throws IOException {
+            this.file = file;
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("not a partial result file: " + file);
+                }
+                fingerprint = in.readUTF();
+                fileCount = StatsCache.readVarLong(in);
+                lineCount = StatsCache.readVarLong(in);
+                long languageCount = StatsCache.readVarLong(in);
+                for (long n = 0; n < languageCount; n++) {
+                    LineClassifier.Language language = languageOf(in.readUTF());
+                    int i = language.ordinal();
+                    lines.files[i] += StatsCache.readVarLong(in);
+                    lines.blank[i] += StatsCache.readVarLong(in);
+                    lines.comment[i] += StatsCache.readVarLong(in);
+                    lines.code[i] += StatsCache.readVarLong(in);
+                }
+                remaining = StatsCache.readVarLong(in);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        /**
+         * ȡһʣûи൥ʱ false
+         */
+        boolean next() throws IOException {
+            if (remaining == 0) {
+                current = null;
+                return false;
+            }
+            remaining--;
+            int common = (int) StatsCache.readVarLong(in);
+            int suffix = (int) StatsCache.readVarLong(in);
+            if (common + suffix > word.length) {
+                word = Arrays.copyOf(word, Math.max(word.length << 1, common + suffix));
+            }
+            in.readFully(word, common, suffix);
+            wordLength = common + suffix;
+            current = new String(word, 0, wordLength, StandardCharsets.UTF_8);
+            count = StatsCache.readVarLong(in);
+            return true;
+        }
+
+        String word() {
+            return current;
+        }
+
+        long count() {
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private static LineClassifier.Language languageOf(String name) {
+            for (LineClassifier.Language language : LineClassifier.Language.values()) {
+                if (language.name().equals(name)) {
+                    return language;
+                }
+            }
+            return LineClassifier.Language.OTHER;
+        }
+    }
+}
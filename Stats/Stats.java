@@ -1,12 +1,59 @@
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
  * ͳƴƵ
@@ -15,13 +62,185 @@ import java.util.regex.Pattern;
 public class Stats {
 
     /**
-     * Ĭ̸߳
+     * ͳƽػΪͻ˵
      */
-    private static final int DEFAULT_POLL_SIZE = 4;
+    private final PrintStream mOut;
     /**
-     * ʹ HashMap 浥ʼִ
+     * ·ĲԸļнػΪͻ˵ĹĿ¼
      */
-    private final HashMap<String, Integer> hitSymbolMap = new HashMap<>();
+    private final Path mWorkingDir;
+    /**
+     * ǷϷϷʱ run() ֱӷ
+     */
+    private final boolean mValid;
+    /**
+     * ָļļУΪ null ʱͳƹĿ¼
+     */
+    private String mTarget;
+    /**
+     * ǷΪ merge 
+     */
+    private boolean mMerge;
+    /**
+     * ػڶ֮䱣ڴе
+     */
+    private StatsCache mDaemonCache;
+    /**
+     * ʼ
+     */
+    private WordCounter.Mode mCountMode = WordCounter.Mode.SHARD;
+    /**
+     * ƼıļںϲеĽ
+     */
+    private String mSketchPath;
+    /**
+     *  mSketchPath ȡϴνͳƽ뱾εĽϲ
+     */
+    private WordSketch mPreviousSketch;
+    /**
+     * 浥ʼִ
+     */
+    private WordCounter mWordCounter;
+    /**
+     * ļʹõ߳
+     */
+    private int mWalkThreads = Runtime.getRuntime().availableProcessors();
+    /**
+     * ߳Ϊ 0 ʱݶлѹ߳̿ʱԶ
+     */
+    private int mComputeThreads = 0;
+    /**
+     * ȣָļΪ 0 
+     */
+    private int mMaxDepth = Integer.MAX_VALUE;
+    /**
+     * Ƿ .gitignore ļļ
+     */
+    private boolean mUseGitignore = true;
+    /**
+     * --exclude ָĹԱ㣬 .gitignore
+     */
+    private final List<String> mExcludes = new ArrayList<>();
+    private IgnoreRules mExcludeRules = IgnoreRules.NONE;
+    /**
+     * ͳƻļΪ null ʱʹû
+     */
+    private String mCachePath;
+    /**
+     * ޸ʱ仯ʱǷٱȽݹϣ
+     */
+    private boolean mCacheHash;
+    /**
+     * Ƿݹϣʶͬļִֻͬһ
+     */
+    private boolean mDedup;
+    /**
+     * ȥʱļСֵڸôСĵһļͳɺɣСͬļͬҪȼϣ
+     */
+    private final ConcurrentHashMap<Long, CompletableFuture<Void>> mDedupSizes = new ConcurrentHashMap<>();
+    /**
+     * ݹϣʹСͳƽڷִʵҲȷ룬߳ͬʱȴظִ
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<StatsCache.Entry>> mDedupEntries =
+            new ConcurrentHashMap<>();
+    private StatsCache mCache;
+    /**
+     * ִĵʸ
+     */
+    private int mTopCount = 10;
+    /**
+     * ָ
+     */
+    private final StatsMetrics mMetrics = new StatsMetrics();
+    /**
+     * ȱ룩0 ʾ
+     */
+    private int mProgressSeconds = 0;
+    /**
+     * ָļ·Ϊ null ʱд
+     */
+    private String mMetricsPath;
+    /**
+     * Ƿ߳жȡļ
+     */
+    private boolean mVirtualThreads;
+    /**
+     * ߳ģʽͬʱ򿪵ļ
+     */
+    private int mMaxOpenFiles = 256;
+    private VirtualReader mVirtualReader;
+    /**
+     * ԤʹõĻ0 ʾԤ
+     */
+    private int mReadBuffers;
+    /**
+     * ԤĴСļԤ
+     */
+    private int mReadBufferSize = 256 * 1024;
+    private AsyncReader mAsyncReader;
+    /**
+     * Ƿͳ zip / jar еļ
+     */
+    private boolean mScanArchives = true;
+    /**
+     * ļ͵ʵȣ-1 ʾΪ 0 
+     */
+    private int mTreeDepth = -1;
+    /**
+     * ·ڼļڵļ
+     */
+    private String mTreeRoot;
+    /**
+     * ļʱÿļеĵʸ
+     */
+    private static final int TREE_TOP_WORDS = 3;
+    /**
+     * ôСļзΪΣɶ߳ͬʱͳ
+     */
+    private long mChunkSize = 64L * 1024 * 1024;
+    /**
+     * ֻͳ·ϣ mShardCount ȡ mShardIndex ļڶ̨Ƭͳ
+     */
+    private int mShardIndex = 0;
+    private int mShardCount = 1;
+    /**
+     * --subtree ָļУԱ㣬 / βΪʱͳļ
+     */
+    private final List<String> mSubtrees = new ArrayList<>();
+    /**
+     * ֽļΪ null ʱд
+     */
+    private String mPartialPath;
+    /**
+     * merge ҪϲĲֽļ
+     */
+    private final List<String> mPartialFiles = new ArrayList<>();
+    /**
+     * Ƿ״ͳɺļ仯
+     */
+    private boolean mWatch;
+    private WatchService mWatchService;
+    /**
+     * ѼļУ·ʱ·ͺԹж³ֵļǷҪͳ
+     */
+    private final ConcurrentHashMap<Path, WatchedDir> mWatchedDirs = new ConcurrentHashMap<>();
+    /**
+     * յ仯ٵȴôûµı仯ŴͬһαĶ¼ϲΪһ
+     */
+    private static final long WATCH_SETTLE_MILLIS = 200;
+    /**
+     * һ仯ռʱ䣬仯ʱҲܶ
+     */
+    private static final long WATCH_BATCH_MILLIS = 2000;
+    /**
+     * Ѿеδļ̱߳ҲһΪ 0 ʱнǣ
+     * ѹʱĿڽ֮
+     */
+    private final AtomicInteger mPendingFiles = new AtomicInteger(1);
+    /**
+     * --encoding ָļ룬Ϊ null ʱ UTF-8  BOM  UTF-16 ļԶʶ
+     */
+    private Charset mCharset;
     /**
      * ʹƥǷΪԴļ
      */
@@ -29,319 +248,2396 @@ public class Stats {
     /**
      * ͳƵļ
      */
-    private int mFileCount = 0;
+    private final AtomicInteger mFileCount = new AtomicInteger();
+    /**
+     * ȡʧܵļԵĴ֮б
+     */
+    private int mMaxRetries = 3;
+    /**
+     * һǰȴʱ䣬֮ÿμӱ
+     */
+    private static final long RETRY_BACKOFF_MILLIS = 100;
+    /**
+     * ȡʧܵļѾʧܵĴļķֶΰ
+     */
+    private final ConcurrentHashMap<String, Integer> mFailures = new ConcurrentHashMap<>();
+    /**
+     * ԺȻ޷ȡļһεĴͳƽʱ
+     */
+    private final ConcurrentLinkedQueue<String> mQuarantine = new ConcurrentLinkedQueue<>();
+    /**
+     * ʹнбѼ⵽ļÿԪΪһļ
+     */
+    private FileQueue mFileQueue;
+    /**
+     * ļﵽ̵߳ȴ
+     */
+    private int mQueueCapacity = 16 * 1024;
+    /**
+     * ʱͬһļеļÿôΪһ
+     */
+    private int mQueueBatch = 64;
     /**
-     * ʹбѼ⵽ļ
+     * ͳ߳ CPU ʱ
      */
-    private final LinkedBlockingQueue<File> mFileQueue = new LinkedBlockingQueue<>();
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported();
     /**
-     * ļǷ
+     * ÿ̵߳ĶȡС
      */
-    private boolean loopEnd;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    /**
+     * ôСļʹڴӳȡ
+     */
+    private static final long MAP_THRESHOLD = 4 * 1024 * 1024;
+    private static final long MAP_CHUNK_SIZE = 256 * 1024 * 1024;
+    /**
+     * зִļʱһз룬ʱзλ
+     */
+    private static final long MAX_LINE_SEARCH = 1024 * 1024;
 
+    /**
+     *  run() ʼͳ
+     */
     public Stats(String[] args) {
+        this(args, System.out, Paths.get(System.getProperty("user.dir")));
+    }
+
+    /**
+     * Ƕʱʹãֻ run() ʼͳ
+     *
+     * @param args       ͬĲ
+     * @param out        ͳƽʾҲд
+     * @param workingDir ·ĲԸļн
+     */
+    public Stats(String[] args, PrintStream out, Path workingDir) {
+        mOut = out;
+        mWorkingDir = workingDir;
+        mValid = parseArgs(args);
+    }
+
+    /**
+     * ͳƲÿ Stats ֻһ
+     *
+     * @return ϷĿ겻ڻͳʧʱ null
+     */
+    public StatsResult run() {
+        if (!mValid) {
+            return null;
+        }
+        if (mMerge) {
+            return mergePartials();
+        }
+        if (!loadSketch()) {
+            return null;
+        }
+        if (mTarget == null || ".".equals(mTarget)) {
+            return targetIsDirectory(mWorkingDir.toString());
+        }
+        Path target = resolve(mTarget);
+        File file = target.toFile();
+        if (!file.exists()) {
+            mOut.println("ļ");
+            return null;
+        }
+        if (file.isDirectory()) {
+            return targetIsDirectory(target.toString());
+        }
+        if (mWatch) {
+            //ļʱע WatchServiceļֻͳһξͻ˳
+            mOut.println("--watch requires a directory target");
+            return null;
+        }
+        return targetIsFile(target.toString());
+    }
+
+    /**
+     * Ϸʱ÷ false
+     */
+    private boolean parseArgs(String[] args) {
         String help = "÷java Stats [ļ]\n" +
                 "   java Stats [ļ]\n" +
                 "   java Stats -f [.׺] ⵱ǰĿ¼Ŀ¼ָ׺ļ\n" +
-                "   java Stats [.] ⵱ǰĿ¼к׺Ϊjava|py|c|cpp|cc|cs|sql|js|php ļ";
+                "   java Stats [.] ⵱ǰĿ¼к׺Ϊjava|py|c|cpp|cc|cs|sql|js|php ļ\n" +
+                "   -m [sync|shard|adder] ʼԣȫּ / ÿ̶߳ϲ / LongAdderĬ shard\n" +
+                "   --approx ̶ڴĽƼƴΧʺϵʷǳ\n" +
+                "   --sketch [ļ] ƼʱļϴεĽϲѺϲĽдأ\n" +
+                "   -j [N] ļ߳Ĭϴ CPU ʼԶ\n" +
+                "   --walk-threads [N] ļе߳ĬΪ CPU \n" +
+                "   --max-depth [N] ȣĬϲƣ\n" +
+                "   --exclude [] ƥļļУ﷨ .gitignore ͬԶָ .gitignore! ° .gitignore Ե·\n" +
+                "   --no-ignore ȡ .gitignoreҲ .git ļУĬϻȡͳƽɰ汾ͬ\n" +
+                "   -n [N] ִ N ʣĬ 10\n" +
+                "   --cache [ļ] ֻͳƴС޸ʱ仯ļ\n" +
+                "   --cache-hash ޸ʱ仯ʱٱȽļݹϣͬʹû棩\n" +
+                "   --dedup ͬļִֻһΣСͬʱٱȽݹϣ\n" +
+                "   --progress [N] ÿ N ׼һνȣ\n" +
+                "   --metrics [ļ] ÿ JSON lines ʽд׶εָ꣩\n" +
+                "   --no-archives ͳ zip / jar ѹеļĬϻͳƣѹĿ¼ɰ汾Ľͬ\n" +
+                "   --virtual ÿļһ߳жȡʺļϵͳҪ Java 21\n" +
+                "   --max-open [N] ߳ģʽͬʱ򿪵ļޣĬ 256\n" +
+                "   --retries [N] ȡʧܵļ N ΣμӱȻʧܵļڽʱгĬ 3\n" +
+                "   --read-ahead [N] ͳƵǰļʱ첽ȡһļʹ N õĻ\n" +
+                "   --read-buffer [KB] ԤĴСļԤĬ 256\n" +
+                "   --queue-capacity [N] ȴͳƵļޣﵽͣĬ 16384\n" +
+                "   --queue-batch [N] ʱÿ N ļΪһУĬ 64\n" +
+                "   --shard [I/N] ֻͳư·ϣֵ I ƬļI  0 ʼ\n" +
+                "   --subtree [ļ] ֻͳָļУԶָ\n" +
+                "   --partial [ļ] ͵ʴд벿ֽļ\n" +
+                "   --tree [N] ļͳĵʣ N 㣩\n" +
+                "   --chunk-size [MB] ôСļзΪβͳƣĬ 64\n" +
+                "   --encoding [] Դļı룬Ĭ UTF-8 ASCII ݵıֱӰֽͳƣ\n" +
+                "   --watch ͳɺļУļ仯ʱֻͳƱ仯ļ\n" +
+                "   java Stats merge [ֽļ...] ϲֽļͳƽ\n" +
+                "   java Stats daemon [--socket ļ] פ̨ͨ Unix domain socket ͳ\n" +
+                "   java Stats client [--socket ļ] [...] ػͳƣػûʱڵǰͳƣ";
         if (args == null || args.length == 0) {
-            System.out.println(help);
-        } else if (args.length == 1) {
-            String arg = args[0];
-            if (".".equals(arg)) {
-                targetIsDirectory(System.getProperty("user.dir"));//ǰ·
-            } else {
-                File file = new File(arg);
-                if (!file.exists()) {
-                    System.out.println("ļ");
-                    return;
-                }
-                if (file.isDirectory()) {
-                    targetIsDirectory(arg);
+            mOut.println(help);
+            return false;
+        }
+        if ("merge".equals(args[0])) {
+            for (int i = 1; i < args.length; i++) {
+                if ("-n".equals(args[i]) && i + 1 < args.length && parsePositiveInt(args[i + 1]) >= 0) {
+                    mTopCount = parsePositiveInt(args[++i]);
                 } else {
-                    targetIsFile(arg);
+                    mPartialFiles.add(args[i]);
                 }
             }
-        } else if (args.length == 2 && "-f".equals(args[0]) && args[1].startsWith(".") && args[1].length() > 1) {
-            mFileNamePattern = Pattern.compile(String.format("^.*?\\.%s$", args[1].replaceAll("\\.", "")));
-            targetIsDirectory(System.getProperty("user.dir"));
-        } else {
-            System.out.println(String.format("Unrecognized option\n\n%s", help));
+            if (mPartialFiles.isEmpty()) {
+                mOut.println(help);
+                return false;
+            }
+            mMerge = true;
+            return true;
+        }
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            if ("-f".equals(arg) && value != null && value.startsWith(".") && value.length() > 1) {
+                mFileNamePattern = Pattern.compile(String.format("^.*?\\.%s$", value.replaceAll("\\.", "")));
+                i++;
+            } else if ("-m".equals(arg) && value != null && WordCounter.Mode.parse(value) != null) {
+                mCountMode = WordCounter.Mode.parse(value);
+                i++;
+            } else if ("--approx".equals(arg)) {
+                mCountMode = WordCounter.Mode.APPROX;
+            } else if ("--sketch".equals(arg) && value != null) {
+                mSketchPath = value;
+                i++;
+            } else if ("-j".equals(arg) && parsePositiveInt(value) > 0) {
+                mComputeThreads = parsePositiveInt(value);
+                i++;
+            } else if ("--walk-threads".equals(arg) && parsePositiveInt(value) > 0) {
+                mWalkThreads = parsePositiveInt(value);
+                i++;
+            } else if ("--max-depth".equals(arg) && parsePositiveInt(value) >= 0) {
+                mMaxDepth = parsePositiveInt(value);
+                i++;
+            } else if ("-n".equals(arg) && parsePositiveInt(value) >= 0) {
+                mTopCount = parsePositiveInt(value);
+                i++;
+            } else if ("--cache".equals(arg) && value != null) {
+                mCachePath = value;
+                i++;
+            } else if ("--progress".equals(arg) && parsePositiveInt(value) > 0) {
+                mProgressSeconds = parsePositiveInt(value);
+                i++;
+            } else if ("--metrics".equals(arg) && value != null) {
+                mMetricsPath = value;
+                i++;
+            } else if ("--exclude".equals(arg) && value != null) {
+                mExcludes.add(value);
+                i++;
+            } else if ("--no-ignore".equals(arg)) {
+                mUseGitignore = false;
+            } else if ("--no-archives".equals(arg)) {
+                mScanArchives = false;
+            } else if ("--virtual".equals(arg)) {
+                if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+                    //˻صͨ߳ʱÿļһ̣߳߳û
+                    mOut.println("--virtual requires Java 21 or later");
+                    return false;
+                }
+                mVirtualThreads = true;
+            } else if ("--max-open".equals(arg) && parsePositiveInt(value) > 0) {
+                mMaxOpenFiles = parsePositiveInt(value);
+                i++;
+            } else if ("--retries".equals(arg) && parsePositiveInt(value) >= 0) {
+                mMaxRetries = parsePositiveInt(value);
+                i++;
+            } else if ("--read-ahead".equals(arg) && parsePositiveInt(value) > 0) {
+                mReadBuffers = parsePositiveInt(value);
+                i++;
+            } else if ("--read-buffer".equals(arg) && parsePositiveInt(value) > 0) {
+                mReadBufferSize = parsePositiveInt(value) * 1024;
+                i++;
+            } else if ("--queue-capacity".equals(arg) && parsePositiveInt(value) > 0) {
+                mQueueCapacity = parsePositiveInt(value);
+                i++;
+            } else if ("--queue-batch".equals(arg) && parsePositiveInt(value) > 0) {
+                mQueueBatch = parsePositiveInt(value);
+                i++;
+            } else if ("--shard".equals(arg) && value != null && parseShard(value)) {
+                i++;
+            } else if ("--subtree".equals(arg) && value != null) {
+                mSubtrees.add(normalizeSubtree(value));
+                i++;
+            } else if ("--partial".equals(arg) && value != null) {
+                mPartialPath = value;
+                i++;
+            } else if ("--tree".equals(arg) && parsePositiveInt(value) >= 0) {
+                mTreeDepth = parsePositiveInt(value);
+                i++;
+            } else if ("--chunk-size".equals(arg) && parsePositiveInt(value) > 0) {
+                mChunkSize = parsePositiveInt(value) * 1024L * 1024;
+                i++;
+            } else if ("--encoding".equals(arg) && parseCharset(value) != null) {
+                mCharset = parseCharset(value);
+                i++;
+            } else if ("--watch".equals(arg)) {
+                mWatch = true;
+            } else if ("--cache-hash".equals(arg)) {
+                mCacheHash = true;
+            } else if ("--dedup".equals(arg)) {
+                mDedup = true;
+            } else if (mTarget == null && !arg.startsWith("-")) {
+                mTarget = arg;
+            } else {
+                mOut.println(String.format("Unrecognized option\n\n%s", help));
+                return false;
+            }
+        }
+        if (mCountMode == WordCounter.Mode.APPROX && mTreeDepth >= 0) {
+            //ÿļеĵʶǾȷڴ浥ļƼĹ̶ڴ治ٳ
+            mOut.println("--approx cannot be combined with --tree");
+            return false;
         }
+        if (mCountMode == WordCounter.Mode.APPROX && mPartialPath != null) {
+            //Ƽֻ¼ֵʵĹֵֽļҪȷĴ
+            mOut.println("--approx cannot be combined with --partial");
+            return false;
+        }
+        return true;
     }
 
     /**
-     * ָĲΪļ
-     *
-     * @param filePath ָļ
+     * ԹĿ¼·
      */
-    private void targetIsFile(String filePath) {
-        long startTime = System.currentTimeMillis();
-        loopEnd = false;
-        addFileToQueue(new File(filePath));
-        loopEnd = true;
-        ComputeSymbolThread computeSymbolThread = new ComputeSymbolThread(mFileQueue, new CountDownLatch(1));
-        computeSymbolThread.start();
-        try {
-            computeSymbolThread.join();
-            printResult(startTime, computeSymbolThread);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+    private Path resolve(String path) {
+        return mWorkingDir.resolve(path);
+    }
+
+    /**
+     * ӰͳƽĲͲֽļָֻͬʱʹãļνԼǷ񱻵ļ
+     */
+    String getFingerprint() {
+        return "pattern=" + mFileNamePattern.pattern() + "\ncharset="
+                + (mCharset != null ? mCharset.name() : StandardCharsets.UTF_8.name());
+    }
+
+    /**
+     * ػ̱ڴ滺ļͳĿӲָƣָ --cache--watch Ϊ merge ʱ null
+     */
+    String getCacheKey() {
+        if (!mValid || mMerge || mCachePath != null || mWatch) {
+            return null;
         }
+        Path target = mTarget == null ? mWorkingDir : resolve(mTarget);
+        return target.toAbsolutePath().normalize() + "\n" + getFingerprint();
     }
 
     /**
-     * ָĲΪļ
-     *
-     * @param dirPath ָļ
+     * ʹػ̱ڴ滺棬Ҫ run() ֮ǰ
      */
-    private void targetIsDirectory(String dirPath) {
-        long startTime = System.currentTimeMillis();
+    void setDaemonCache(StatsCache cache) {
+        mDaemonCache = cache;
+    }
 
-        loopEnd = false;
-        new LoopDirectoryThread(dirPath).start();
+    /**
+     * ǸϷʱ -1
+     */
+    private static int parsePositiveInt(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            int result = Integer.parseInt(value);
+            return result >= 0 ? result : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 
-        CountDownLatch countDownLatch = new CountDownLatch(DEFAULT_POLL_SIZE);
-        ComputeSymbolThread[] computeSymbolThreadPool = new ComputeSymbolThread[DEFAULT_POLL_SIZE];
-        for (int i = 0; i < computeSymbolThreadPool.length; i++) {
-            ComputeSymbolThread computeSymbolThread = new ComputeSymbolThread(mFileQueue, countDownLatch);
-            computeSymbolThreadPool[i] = computeSymbolThread;
-            computeSymbolThread.start();
+    /**
+     * ƣ֧ʱ null
+     */
+    private static Charset parseCharset(String value) {
+        if (value == null) {
+            return null;
         }
         try {
-            countDownLatch.await();
-            printResult(startTime, computeSymbolThreadPool);
-        } catch (Exception e) {
-            e.printStackTrace();
+            return Charset.forName(value);
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
 
     /**
-     * ӡͳƽ
+     *  I/N ʽķƬ
      */
-    private void printResult(long startTime, ComputeSymbolThread... threads) {
-        int codeLineCount = 0;
+    private boolean parseShard(String value) {
+        int slash = value.indexOf('/');
+        if (slash < 0) {
+            return false;
+        }
+        int index = parsePositiveInt(value.substring(0, slash));
+        int count = parsePositiveInt(value.substring(slash + 1));
+        if (index < 0 || count <= 0 || index >= count) {
+            return false;
+        }
+        mShardIndex = index;
+        mShardCount = count;
+        return true;
+    }
 
-        for (ComputeSymbolThread thread : threads) {
-            codeLineCount += thread.getCodeLineCount();
+    /**
+     * ļͳһΪԱ㡢ʹ / ָ / βʽ
+     */
+    private static String normalizeSubtree(String value) {
+        String path = value.replace('\\', '/');
+        while (path.startsWith("./")) {
+            path = path.substring(2);
         }
+        while (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        return path.endsWith("/") || path.isEmpty() ? path : path + "/";
+    }
 
-        System.out.println(String.format("\t%s text files.", mFileCount));
-        System.out.println(String.format("\t%s lines code.", codeLineCount));
-        long taking = System.currentTimeMillis() - startTime;
-        double fileTaking = ((double) mFileCount) / ((double) taking) * 1000.0;
-        double lineTaking = ((double) codeLineCount) / ((double) taking) * 1000.0;
+    /**
+     * ǷҪļУûָļУļĳļ֮Уĳļеϼ
+     *
+     * @param path  / β·
+     */
+    private boolean isSelectedDirectory(String path) {
+        if (mSubtrees.isEmpty()) {
+            return true;
+        }
+        for (String subtree : mSubtrees) {
+            if (path.startsWith(subtree) || subtree.startsWith(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        System.out.println(String.format("\tT=%s ms ( %.1f files/s, %.1f lines/s)",
-                taking,
-                fileTaking,
-                lineTaking));
-        List<Map.Entry<String, Integer>> list = new ArrayList<Map.Entry<String, Integer>>(hitSymbolMap.entrySet());
-        list.sort(new Comparator<Map.Entry<String, Integer>>() {
-            @Override
-            public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2) {
-                return o2.getValue() - o1.getValue();
+    /**
+     * ļǷڱͳƵķƬ·ϣͬϵĽͬ
+     */
+    private boolean isSelectedFile(String path) {
+        if (!mSubtrees.isEmpty()) {
+            boolean inSubtree = false;
+            for (String subtree : mSubtrees) {
+                if (path.startsWith(subtree)) {
+                    inSubtree = true;
+                    break;
+                }
             }
-        });
-        int count = 1;
-        System.out.println("\n\ttop\tword\ttimes\t");
-        for (Map.Entry<String, Integer> mapping : list) {
-            System.out.println(String.format("\t%s\t%s\t%s", count, mapping.getKey(), mapping.getValue()));
-            if (count > 9) break;
-            count++;
+            if (!inSubtree) {
+                return false;
+            }
+        }
+        return mShardCount == 1
+                || Math.floorMod(WordTokenizer.Interner.mix(path.hashCode()), mShardCount) == mShardIndex;
+    }
+
+    /**
+     * Ƽʱͳ֮ǰȡϴαĽļ޷ϲʱͳƣͳɺŷֽ޷
+     *
+     * @return ļ𻵻 count-min ĴС뵱ǰ汾ͬʱ false
+     */
+    private boolean loadSketch() {
+        if (mSketchPath == null || mCountMode != WordCounter.Mode.APPROX) {
+            return true;
+        }
+        try {
+            mPreviousSketch = WordSketch.load(resolve(mSketchPath));
+            return true;
+        } catch (IOException e) {
+            mOut.println(String.format("--sketch %s cannot be merged: %s", mSketchPath, e.getMessage()));
+            return false;
         }
     }
 
     /**
-     * ɸѡʵļ
+     * ʼƼʱ¼ĵʸ -n ӣҲϴαĽϲʱʧ¼ĵ
      */
-    private boolean filterFile(File file) {
-        return file != null && !file.isDirectory() && mFileNamePattern.matcher(file.getName().toLowerCase()).find();
+    private WordCounter createWordCounter() {
+        if (mCountMode == WordCounter.Mode.APPROX) {
+            int capacity = Math.max(WordCounter.DEFAULT_SKETCH_CAPACITY, mTopCount * 16);
+            if (mPreviousSketch != null) {
+                capacity = Math.max(capacity, mPreviousSketch.getCapacity());
+            }
+            return new WordCounter.ApproxCounter(capacity);
+        }
+        return WordCounter.create(mCountMode);
     }
 
     /**
-     * һ File
+     * ƼʱϴαĽϲȻ󱣴
      */
-    private void addFileToQueue(final File file) {
+    private void mergeSketch() {
+        if (mSketchPath == null || !(mWordCounter instanceof WordCounter.ApproxCounter)) {
+            return;
+        }
+        WordSketch sketch = ((WordCounter.ApproxCounter) mWordCounter).getSketch();
         try {
-            synchronized (mFileQueue) {
-                mFileQueue.put(file);
+            if (mPreviousSketch != null) {
+                sketch.merge(mPreviousSketch);
             }
-            mFileCount++;
+            sketch.save(resolve(mSketchPath));
+        } catch (IOException e) {
+            mOut.println(e.toString());
+        }
+    }
+
+    /**
+     * ָĲΪļ
+     *
+     * @param filePath ָļ
+     */
+    private StatsResult targetIsFile(String filePath) {
+        long startTime = System.currentTimeMillis();
+        mWordCounter = createWordCounter();
+        mFileQueue = new FileQueue(mQueueCapacity);
+        loadCache();
+        startMetrics();
+        mMetrics.filesDiscovered.increment();
+        File file = new File(filePath);
+        addFileToQueue(file);
+        mMetrics.walkFinished();
+        finishQueue();
+        //ļᱻзΪΣÿ߳ͳһ
+        int threads = 1;
+        if (mCache == null && file.length() > mChunkSize) {
+            threads = mComputeThreads > 0 ? mComputeThreads : Runtime.getRuntime().availableProcessors();
+        }
+        WorkerPool pool = WorkerPool.fixed(threads);
+        List<SymbolWorker> workers = new ArrayList<>(threads);
+        CountDownLatch countDownLatch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            SymbolWorker worker = new SymbolWorker();
+            workers.add(worker);
+            ComputeSymbolThread thread = new ComputeSymbolThread(mFileQueue, countDownLatch, worker, pool, i);
+            pool.register(thread, worker.mWorkerMetrics);
+            thread.start();
+        }
+        pool.start(mFileQueue);
+        try {
+            countDownLatch.await();
+            pool.stop();
+            saveCache();
+            return printResult(startTime, workers, null);
         } catch (InterruptedException e) {
-            //
             e.printStackTrace();
+            return null;
         }
     }
 
     /**
-     * ļ߳
+     * ָĲΪļ
+     *
+     * @param dirPath ָļ
      */
-    private class LoopDirectoryThread extends Thread {
-        private String dirPath;
+    private StatsResult targetIsDirectory(String dirPath) {
+        long startTime = System.currentTimeMillis();
+        mWordCounter = createWordCounter();
+        mFileQueue = new FileQueue(mQueueCapacity);
+        loadCache();
+        startMetrics();
 
-        LoopDirectoryThread(String dirPath) {
-            this.dirPath = dirPath;
+        WorkerPool pool;
+        if (mComputeThreads > 0) {
+            pool = WorkerPool.fixed(mComputeThreads);
+        } else if (mVirtualThreads) {
+            //߳ģʽ½ִֻ߳ʣ̶Ϊ CPU 
+            pool = WorkerPool.fixed(Runtime.getRuntime().availableProcessors());
+        } else {
+            pool = WorkerPool.adaptive();
         }
-
-        @Override
-        public void run() {
+        mTreeRoot = Paths.get(dirPath).toString();
+        List<SymbolWorker> workers = new ArrayList<>(pool.size());
+        for (int i = 0; i < pool.size(); i++) {
+            workers.add(new SymbolWorker());
+        }
+        if (mVirtualThreads) {
+            mVirtualReader = new VirtualReader(workers);
+        }
+        if (mWatch) {
             try {
-                loopDir(dirPath);
-            } finally {
-                loopEnd = true;
+                mWatchService = FileSystems.getDefault().newWatchService();
+            } catch (IOException e) {
+                mOut.println(e.toString());
             }
         }
 
-        /**
-         * ļбļ
-         *
-         * @param dirPath ļ·
-         */
-        private void loopDir(String dirPath) {
-            if (dirPath == null || dirPath.isEmpty()) {
-                System.out.println("directory is empty");
-                return;
-            }
-            File dirFile = new File(dirPath);
-            if (!dirFile.exists()) {
-                System.out.println(String.format("%s file not exists", dirPath));
-                return;
-            }
-            if (dirFile.isDirectory()) {
-                File[] files = dirFile.listFiles();
-                if (files != null && files.length > 0) {
-                    for (File item : files) {
-                        if (item.isDirectory()) {
-                            loopDir(item.getPath());
-                        } else if (filterFile(item)) {
-                            addFileToQueue(item);
-                        }
-                    }
-                }
+        new LoopDirectoryThread(dirPath).start();
+
+        try {
+            if (mVirtualReader != null) {
+                mVirtualReader.await();
             } else {
-                System.out.println(String.format("%s must a folder!", dirPath));
+                if (mReadBuffers > 0) {
+                    mAsyncReader = new AsyncReader(mReadBuffers, mReadBufferSize);
+                    mMetrics.setBufferPool(mAsyncReader.getPool());
+                }
+                CountDownLatch countDownLatch = new CountDownLatch(workers.size());
+                for (int i = 0; i < workers.size(); i++) {
+                    SymbolWorker worker = workers.get(i);
+                    ComputeSymbolThread thread = new ComputeSymbolThread(mFileQueue, countDownLatch, worker, pool, i);
+                    pool.register(thread, worker.mWorkerMetrics);
+                    thread.start();
+                }
+                pool.start(mFileQueue);
+                countDownLatch.await();
+                pool.stop();
+                if (mAsyncReader != null) {
+                    mAsyncReader.shutdown();
+                }
             }
+            saveCache();
+            StatsResult result = printResult(startTime, workers, pool);
+            if (mWatchService != null) {
+                new DirectoryWatcher().run();
+            }
+            return result;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * ʼʱȻдָļ
+     */
+    private void startMetrics() {
+        mMetrics.setQueue(mFileQueue);
+        if (mProgressSeconds > 0 || mMetricsPath != null) {
+            try {
+                mMetrics.start(mProgressSeconds > 0 ? mProgressSeconds : 1, mProgressSeconds > 0,
+                        mMetricsPath != null ? resolve(mMetricsPath).toString() : null);
+            } catch (IOException e) {
+                mOut.println(e.toString());
+            }
+        }
+    }
+
+    /**
+     * ͳƻ棬˹ͬĻ治ᱻʹ
+     */
+    private void loadCache() {
+        if (mCachePath != null) {
+            mCache = StatsCache.load(resolve(mCachePath), getFingerprint());
+        } else if (mDaemonCache != null) {
+            mCache = mDaemonCache;
+        } else if (mWatch) {
+            //ģʽҪÿļͳƽļ仯ʱܼȥɵĽ
+            mCache = StatsCache.inMemory(getFingerprint());
+        }
+    }
+
+    /**
+     * 汾еͳƽ´ʹ
+     */
+    private void saveCache() {
+        if (mCache != null) {
+            try {
+                mCache.save();
+            } catch (IOException e) {
+                mOut.println(e.toString());
+            }
+        }
+    }
+
+    /**
+     * ӡͳƽ
+     *
+     * @param pool Զ߳ʱ߳ķΧΪ null
+     */
+    private StatsResult printResult(long startTime, List<SymbolWorker> workers, WorkerPool pool) {
+        long mergeStart = System.nanoTime();
+        mWordCounter.complete();
+        mergeSketch();
+        long mergeNanos = System.nanoTime() - mergeStart;
+        mMetrics.mergeFinished(mergeNanos);
+        mMetrics.stop();
+
+        int codeLineCount = 0;
+        long idleWaitNanos = 0;
+        long idleCpuNanos = 0;
+        int cacheHitCount = 0;
+        int cacheMissCount = 0;
+        LineClassifier.Summary lineSummary = new LineClassifier.Summary();
+
+        for (SymbolWorker worker : workers) {
+            lineSummary.merge(worker.getLineSummary());
+            cacheHitCount += worker.getCacheHitCount();
+            cacheMissCount += worker.getCacheMissCount();
+            codeLineCount += worker.getCodeLineCount();
+            idleWaitNanos += worker.getIdleWaitNanos();
+            idleCpuNanos += worker.getIdleCpuNanos();
+        }
+
+        int fileCount = mFileCount.get();
+        mOut.println(String.format("\t%s text files.", fileCount));
+        mOut.println(String.format("\t%s lines code.", codeLineCount));
+        long taking = System.currentTimeMillis() - startTime;
+        double fileTaking = ((double) fileCount) / ((double) taking) * 1000.0;
+        double lineTaking = ((double) codeLineCount) / ((double) taking) * 1000.0;
+
+        mOut.println(String.format("\tT=%s ms ( %.1f files/s, %.1f lines/s)",
+                taking,
+                fileTaking,
+                lineTaking));
+        mOut.println(String.format("\tidle=%s ms waiting, %s ms cpu ( %s workers%s)",
+                idleWaitNanos / 1000000,
+                CPU_TIME_SUPPORTED ? String.valueOf(idleCpuNanos / 1000000) : "n/a",
+                workers.size(),
+                pool != null && pool.isAdaptive()
+                        ? String.format(", %s-%s active", pool.getLowestActive(), pool.getHighestActive()) : ""));
+        WordSketch sketch = mWordCounter instanceof WordCounter.ApproxCounter
+                ? ((WordCounter.ApproxCounter) mWordCounter).getSketch() : null;
+        if (sketch != null) {
+            mOut.println(String.format("\tmode=approx, merge=%s ms, %s words total, error <= %s ( %.1f%% confidence)",
+                    mergeNanos / 1000000,
+                    sketch.getTotal(),
+                    sketch.errorBound(),
+                    sketch.confidence() * 100));
+        } else {
+            mOut.println(String.format("\tmode=%s, merge=%s ms, %s words",
+                    mCountMode.name().toLowerCase(),
+                    mergeNanos / 1000000,
+                    mWordCounter.size()));
+        }
+        if (mCache != null) {
+            mOut.println(String.format("\tcache=%s hit, %s miss", cacheHitCount, cacheMissCount));
+        }
+        if (mVirtualReader == null) {
+            mOut.println(String.format("\tqueue=peak %s of %s files, %s batches",
+                    mFileQueue.getPeakSize(), mFileQueue.getCapacity(), mFileQueue.getBatchCount()));
+        }
+        if (mAsyncReader != null) {
+            BufferPool bufferPool = mAsyncReader.getPool();
+            mOut.println(String.format("\tread-ahead=%s buffers of %s KB, %s hit, %s miss", mReadBuffers,
+                    bufferPool.getBufferSize() / 1024, bufferPool.hits.sum(), bufferPool.misses.sum()));
+        }
+        long dirsPruned = mMetrics.dirsPruned.sum();
+        long filesIgnored = mMetrics.filesIgnored.sum();
+        if (dirsPruned > 0 || filesIgnored > 0) {
+            mOut.println(String.format("\tpruned=%s dirs, %s files ignored", dirsPruned, filesIgnored));
+        }
+        long filesBinary = mMetrics.filesBinary.sum();
+        long filesUndecodable = mMetrics.filesUndecodable.sum();
+        if (filesBinary > 0 || filesUndecodable > 0) {
+            mOut.println(String.format("\tskipped=%s binary, %s undecodable files", filesBinary, filesUndecodable));
+        }
+        if (mDedup) {
+            mOut.println(String.format("\tdedup=%s duplicate files, %s unique bytes, %s duplicate bytes",
+                    mMetrics.filesDuplicate.sum(), mMetrics.bytesUnique.sum(), mMetrics.bytesDuplicate.sum()));
+        }
+        if (!mQuarantine.isEmpty()) {
+            List<String> quarantine = new ArrayList<>(mQuarantine);
+            Collections.sort(quarantine);
+            mOut.println(String.format("\tquarantined=%s files (failed after %s retries)", quarantine.size(),
+                    mMaxRetries));
+            for (String failure : quarantine) {
+                mOut.println("\t  " + failure);
+            }
+        }
+        if (mPartialPath != null) {
+            try {
+                PartialResult.write(resolve(mPartialPath), getFingerprint(),
+                        fileCount, codeLineCount, lineSummary, mWordCounter);
+                mOut.println(String.format("\tpartial=%s ( shard %s/%s)", mPartialPath, mShardIndex, mShardCount));
+            } catch (IOException e) {
+                mOut.println(e.toString());
+            }
+        }
+        printLanguages(lineSummary);
+        WordCounter.TopWords topWords = new WordCounter.TopWords(mTopCount);
+        mWordCounter.forEach(topWords);
+        List<Map.Entry<String, Long>> top = topWords.result();
+        if (sketch != null) {
+            int count = 1;
+            //Ƽtimes Ϊֵʵ [at least, times] ֮
+            mOut.println("\n\ttop\tword\ttimes\tat least\t");
+            for (Map.Entry<String, Long> mapping : top) {
+                mOut.println(String.format("\t%s\t%s\t%s\t%s", count, mapping.getKey(), mapping.getValue(),
+                        sketch.lowerBound(mapping.getKey())));
+                count++;
+            }
+        } else {
+            printTopWords(top);
+        }
+        if (mTreeDepth >= 0 && mTreeRoot != null) {
+            List<DirectoryTree.Local> locals = new ArrayList<>(workers.size());
+            for (SymbolWorker worker : workers) {
+                locals.add(worker.mTree);
+            }
+            printTree(DirectoryTree.reduce(locals, mWalkThreads));
+        }
+        return new StatsResult(fileCount, codeLineCount, lineSummary, mWordCounter.size(), top, taking);
+    }
+
+    private void printLanguages(LineClassifier.Summary lineSummary) {
+        mOut.println("\n\tlanguage\tfiles\tblank\tcomment\tcode");
+        for (LineClassifier.Language language : LineClassifier.Language.values()) {
+            int i = language.ordinal();
+            if (lineSummary.files[i] > 0) {
+                mOut.println(String.format("\t%s\t%s\t%s\t%s\t%s", language.label, lineSummary.files[i],
+                        lineSummary.blank[i], lineSummary.comment[i], lineSummary.code[i]));
+            }
+        }
+    }
+
+    /**
+     * ӶൽÿļУļ
+     */
+    private void printTree(DirectoryTree.Node root) {
+        mOut.println("\n\tdirectory\tfiles\tlines\tcode\ttop words");
+        printTreeNode(root);
+    }
+
+    private void printTreeNode(DirectoryTree.Node node) {
+        WordCounter.TopWords topWords = new WordCounter.TopWords(TREE_TOP_WORDS);
+        WordTable.Cursor cursor = node.words.cursor();
+        while (cursor.next()) {
+            topWords.visit(cursor.word(), cursor.count());
+        }
+        StringBuilder words = new StringBuilder();
+        for (Map.Entry<String, Long> mapping : topWords.result()) {
+            if (words.length() > 0) {
+                words.append(' ');
+            }
+            words.append(mapping.getKey()).append('(').append(mapping.getValue()).append(')');
+        }
+        StringBuilder indent = new StringBuilder();
+        for (int i = 0; i < node.depth; i++) {
+            indent.append("  ");
+        }
+        mOut.println(String.format("\t%s%s\t%s\t%s\t%s\t%s", indent, node.getName(), node.files, node.lines,
+                node.code, words));
+        List<DirectoryTree.Node> children = new ArrayList<>(node.children);
+        children.sort((a, b) -> a.lines != b.lines ? Long.compare(b.lines, a.lines) : a.path.compareTo(b.path));
+        for (DirectoryTree.Node child : children) {
+            printTreeNode(child);
+        }
+    }
+
+    /**
+     * ļڵļԱ· --tree ʱضϣѹеļѹڵļ
+     */
+    private String treePath(File file) {
+        String path = file.getPath();
+        int archive = path.indexOf("!/");
+        if (archive >= 0) {
+            path = path.substring(0, archive);
+        }
+        if (!path.startsWith(mTreeRoot)) {
+            return "";
+        }
+        String relative = path.substring(mTreeRoot.length()).replace(File.separatorChar, '/');
+        int start = relative.startsWith("/") ? 1 : 0;
+        int end = relative.lastIndexOf('/');
+        if (end <= start) {
+            return "";
+        }
+        int depth = 0;
+        for (int i = start; i < end; i++) {
+            if (relative.charAt(i) == '/' && ++depth == mTreeDepth) {
+                end = i;
+                break;
+            }
+        }
+        return mTreeDepth == 0 ? "" : relative.substring(start, end);
+    }
+
+    private void printTopWords(List<Map.Entry<String, Long>> topWords) {
+        int count = 1;
+        mOut.println("\n\ttop\tword\ttimes\t");
+        for (Map.Entry<String, Long> mapping : topWords) {
+            mOut.println(String.format("\t%s\t%s\t%s", count, mapping.getKey(), mapping.getValue()));
+            count++;
+        }
+    }
+
+    /**
+     * ϲֽļÿļеĵʶĸ˳У·鲢ν TopWords
+     * ڴֻÿļǰһ
+     */
+    private StatsResult mergePartials() {
+        long startTime = System.currentTimeMillis();
+        List<PartialResult.Reader> readers = new ArrayList<>();
+        PriorityQueue<PartialResult.Reader> heads = new PriorityQueue<>(
+                Math.max(1, mPartialFiles.size()), (a, b) -> a.word().compareTo(b.word()));
+        long fileCount = 0;
+        long lineCount = 0;
+        long wordCount = 0;
+        LineClassifier.Summary lineSummary = new LineClassifier.Summary();
+        WordCounter.TopWords topWords = new WordCounter.TopWords(mTopCount);
+        try {
+            for (String partial : mPartialFiles) {
+                PartialResult.Reader reader = new PartialResult.Reader(resolve(partial));
+                readers.add(reader);
+                if (!reader.fingerprint.equals(readers.get(0).fingerprint)) {
+                    //ļ˹벻ͬʱͳƵļϲͬû
+                    mOut.println(String.format("%s was counted with different options than %s, merge aborted:\n%s\n%s",
+                            partial, mPartialFiles.get(0), reader.fingerprint, readers.get(0).fingerprint));
+                    return null;
+                }
+                fileCount += reader.fileCount;
+                lineCount += reader.lineCount;
+                lineSummary.merge(reader.lines);
+                if (reader.next()) {
+                    heads.add(reader);
+                }
+            }
+            while (!heads.isEmpty()) {
+                PartialResult.Reader reader = heads.poll();
+                String word = reader.word();
+                long count = reader.count();
+                if (reader.next()) {
+                    heads.add(reader);
+                }
+                while (!heads.isEmpty() && heads.peek().word().equals(word)) {
+                    reader = heads.poll();
+                    count += reader.count();
+                    if (reader.next()) {
+                        heads.add(reader);
+                    }
+                }
+                wordCount++;
+                topWords.visit(word, count);
+            }
+        } catch (IOException e) {
+            mOut.println(e.toString());
+            return null;
+        } finally {
+            for (PartialResult.Reader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    mOut.println(e.toString());
+                }
+            }
+        }
+        mOut.println(String.format("\t%s text files.", fileCount));
+        mOut.println(String.format("\t%s lines code.", lineCount));
+        long taking = System.currentTimeMillis() - startTime;
+        mOut.println(String.format("\tT=%s ms ( merged %s partials, %s words)", taking, readers.size(), wordCount));
+        printLanguages(lineSummary);
+        List<Map.Entry<String, Long>> top = topWords.result();
+        printTopWords(top);
+        return new StatsResult(fileCount, lineCount, lineSummary, wordCount, top, taking);
+    }
+
+    /**
+     * ļеļ½޸ĺɾ
+     */
+    private void watchDirectory(Path dir, WatchedDir watched) {
+        try {
+            dir.register(mWatchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            mWatchedDirs.put(dir.toAbsolutePath(), watched);
+        } catch (IOException e) {
+            mOut.println(e.toString());
+        }
+    }
+
+    /**
+     * --exclude ĹȣƥʱֱʹĽ ! ° .gitignore Ե·ûƥʱٲ鿴 .gitignore
+     */
+    private boolean isIgnored(IgnoreRules rules, String path, String name, boolean directory) {
+        int exclude = mExcludeRules.match(path, name, directory);
+        if (exclude != IgnoreRules.NO_MATCH) {
+            return exclude == IgnoreRules.IGNORED;
+        }
+        return rules.isIgnored(path, name, directory);
+    }
+
+    /**
+     * ȡ .gitignore޷ȡʱûй
+     */
+    private static List<String> readIgnoreFile(Path file) {
+        try {
+            return Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (MalformedInputException e) {
+            try {
+                return Files.readAllLines(file, StandardCharsets.ISO_8859_1);
+            } catch (IOException e1) {
+                return Collections.emptyList();
+            }
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * ļɸѡʵļ
+     */
+    private boolean filterFileName(String fileName) {
+        return mFileNamePattern.matcher(fileName.toLowerCase()).find();
+    }
+
+    /**
+     * ߳һļʱȴ
+     */
+    private void addBatchToQueue(List<File> files) {
+        mPendingFiles.addAndGet(files.size());
+        mFileCount.addAndGet(files.size());
+        try {
+            mFileQueue.put(files);
+        } catch (InterruptedException e) {
+            //
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * һ Fileȴλͳ߳е
+     */
+    private void addFileToQueue(final File file) {
+        mPendingFiles.incrementAndGet();
+        mFileCount.incrementAndGet();
+        mFileQueue.putNow(Collections.singletonList(file));
+    }
+
+    /**
+     * һļзֶΣÿεһԱֶָ̣ͬ߳βļ
+     */
+    private void addChunksToQueue(List<FileChunk> chunks) {
+        mPendingFiles.addAndGet(chunks.size());
+        for (FileChunk chunk : chunks) {
+            mFileQueue.putNow(Collections.singletonList(chunk));
+        }
+    }
+
+    /**
+     * ȡʧܵļԺ·УȴʱÿμӱԴбټļ
+     * ȴڼļȻδ꣬вǰر
+     */
+    private void retryLater(final File file, String error) {
+        String key = file instanceof FileChunk ? file.getPath() + "@" + ((FileChunk) file).start : file.getPath();
+        Integer previous = mFailures.get(key);
+        int failures = previous == null ? 1 : previous + 1;
+        mFailures.put(key, failures);
+        if (failures > mMaxRetries) {
+            quarantine(file, error);
+            return;
+        }
+        mPendingFiles.incrementAndGet();
+        long delay = RETRY_BACKOFF_MILLIS << Math.min(failures - 1, 10);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(new Runnable() {
+            @Override
+            public void run() {
+                mFileQueue.putNow(Collections.singletonList(file));
+            }
+        });
+    }
+
+    /**
+     * ͳһļļκһʧʱļļ
+     */
+    private void quarantine(File file, String error) {
+        mMetrics.filesFailed.increment();
+        if (file instanceof FileChunk) {
+            FileChunk chunk = (FileChunk) file;
+            if (chunk.parts.fail()) {
+                mFileCount.decrementAndGet();
+            }
+            mQuarantine.add(String.format("%s [%s, %s): %s", file.getPath(), chunk.start, chunk.end, error));
+        } else {
+            mFileCount.decrementAndGet();
+            mQuarantine.add(String.format("%s: %s", file.getPath(), error));
+        }
+    }
+
+    /**
+     * ֮󲻻ļ
+     */
+    private void finishQueue() {
+        if (mVirtualReader != null) {
+            mVirtualReader.walkFinished();
+            return;
+        }
+        releasePending();
+    }
+
+    /**
+     * һļɣļɺرն
+     */
+    private void releasePending() {
+        if (mPendingFiles.decrementAndGet() == 0) {
+            mFileQueue.close();
+        }
+    }
+
+    /**
+     * ȡǰ߳ĵ CPU ʱ䣨룩֧ʱ 0
+     */
+    private static long currentThreadCpuTime() {
+        return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * ļ̣߳ʵʵı ForkJoinPoolÿļһ
+     */
+    private class LoopDirectoryThread extends Thread {
+        private String dirPath;
+
+        LoopDirectoryThread(String dirPath) {
+            this.dirPath = dirPath;
+        }
+
+        @Override
+        public void run() {
+            ForkJoinPool pool = new ForkJoinPool(mWalkThreads);
+            try {
+                if (dirPath == null || dirPath.isEmpty()) {
+                    mOut.println("directory is empty");
+                    return;
+                }
+                Path dir = Paths.get(dirPath);
+                if (!Files.exists(dir)) {
+                    mOut.println(String.format("%s file not exists", dirPath));
+                    return;
+                }
+                if (!Files.isDirectory(dir)) {
+                    mOut.println(String.format("%s must a folder!", dirPath));
+                    return;
+                }
+                mExcludeRules = IgnoreRules.NONE.child("", mExcludes);
+                pool.invoke(new LoopDirectoryTask(dir, 0, "", IgnoreRules.NONE));
+            } finally {
+                pool.shutdown();
+                mMetrics.walkFinished();
+                finishQueue();
+            }
+        }
+    }
+
+    /**
+     * ļеļУļвΪµб
+     */
+    private class LoopDirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final int depth;
+        /**
+         * ļԱ· / βΪַ
+         */
+        private final String relative;
+        /**
+         * ϼļ .gitignore Ĺ
+         */
+        private final IgnoreRules rules;
+
+        LoopDirectoryTask(Path dir, int depth, String relative, IgnoreRules rules) {
+            this.dir = dir;
+            this.depth = depth;
+            this.relative = relative;
+            this.rules = rules;
+        }
+
+        @Override
+        protected void compute() {
+            mMetrics.dirsWalked.increment();
+            List<LoopDirectoryTask> subTasks = new ArrayList<>();
+            List<File> files = new ArrayList<>();
+            final List<Path> items = new ArrayList<>();
+            final List<BasicFileAttributes> itemAttributes = new ArrayList<>();
+            try {
+                //Ϊ 1 ʱÿ visitFile ԱWindows гļʱѾõٵȡ
+                //Linux гļеòļͣÿȻҪһ stat
+                Files.walkFileTree(dir, Collections.<FileVisitOption>emptySet(), 1, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        items.add(file);
+                        itemAttributes.add(attrs);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        //ûȨ޵ԭ޷ȡļлļֱ
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                mOut.println(e.toString());
+            }
+            IgnoreRules rules = this.rules;
+            if (mUseGitignore) {
+                for (Path item : items) {
+                    if (".gitignore".equals(item.getFileName().toString())) {
+                        rules = rules.child(relative, readIgnoreFile(item));
+                    }
+                }
+            }
+            if (mWatchService != null) {
+                watchDirectory(dir, new WatchedDir(relative, rules, depth));
+            }
+            for (int i = 0; i < items.size(); i++) {
+                Path item = items.get(i);
+                try {
+                    BasicFileAttributes attributes = itemAttributes.get(i);
+                    if (attributes.isSymbolicLink()) {
+                        //ָļеӣѭ
+                        attributes = Files.readAttributes(item, BasicFileAttributes.class);
+                        if (attributes.isDirectory()) {
+                            continue;
+                        }
+                    }
+                    String name = item.getFileName().toString();
+                    if (attributes.isDirectory()) {
+                        if (depth >= mMaxDepth) {
+                            continue;
+                        }
+                        //Եļвге
+                        if ((mUseGitignore && ".git".equals(name)) || isIgnored(rules, relative + name, name, true)) {
+                            mMetrics.dirsPruned.increment();
+                        } else if (isSelectedDirectory(relative + name + "/")) {
+                            subTasks.add(new LoopDirectoryTask(item, depth + 1, relative + name + "/", rules));
+                        }
+                    } else if (filterFileName(name) || (mScanArchives && ArchiveEntry.isArchive(name))) {
+                        if (isIgnored(rules, relative + name, name, false)) {
+                            mMetrics.filesIgnored.increment();
+                            continue;
+                        }
+                        if (!isSelectedFile(relative + name)) {
+                            continue;
+                        }
+                        mMetrics.filesDiscovered.increment();
+                        files.add(item.toFile());
+                        if (mVirtualReader == null && files.size() >= mQueueBatch) {
+                            addBatchToQueue(files);
+                            files = new ArrayList<>();
+                        }
+                    }
+                } catch (IOException e) {
+                    //޷ȡԵļֱ
+                }
+            }
+            if (files.isEmpty()) {
+                //ûļ
+            } else if (mVirtualReader != null) {
+                mFileCount.addAndGet(files.size());
+                mVirtualReader.submitDirectory(files);
+            } else {
+                addBatchToQueue(files);
+            }
+            invokeAll(subTasks);
+        }
+    }
+
+    /**
+     * ߳ģʽÿļһÿļһ߳жȡ
+     * ȴļɺŽִȻֻڹ̶ SymbolWorker ϽУ
+     * Ϊ̹߳ռ CPU
+     */
+    private class VirtualReader {
+        private final ExecutorService mExecutor = newVirtualThreadExecutor();
+        /**
+         * ͬʱ򿪵ļҲѶڴ浫ûзִʵļ
+         */
+        private final Semaphore mOpenFiles = new Semaphore(mMaxOpenFiles);
+        /**
+         * е SymbolWorker
+         */
+        private final LinkedBlockingQueue<SymbolWorker> mIdleWorkers;
+        /**
+         * δļ̱߳Ҳһ
+         */
+        private final AtomicInteger mPendingScopes = new AtomicInteger(1);
+        private final CountDownLatch mFinished = new CountDownLatch(1);
+
+        VirtualReader(List<SymbolWorker> workers) {
+            mIdleWorkers = new LinkedBlockingQueue<>(workers);
+        }
+
+        /**
+         * ύһļµļ
+         */
+        void submitDirectory(final List<File> files) {
+            mPendingScopes.incrementAndGet();
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        List<Future<?>> forks = new ArrayList<>(files.size());
+                        for (final File file : files) {
+                            forks.add(mExecutor.submit(new Runnable() {
+                                @Override
+                                public void run() {
+                                    readAndCompute(file);
+                                }
+                            }));
+                        }
+                        for (Future<?> fork : forks) {
+                            try {
+                                fork.get();
+                            } catch (ExecutionException e) {
+                                mOut.println(e.getCause().toString());
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    } finally {
+                        scopeFinished();
+                    }
+                }
+            });
+        }
+
+        void walkFinished() {
+            scopeFinished();
+        }
+
+        /**
+         * ȴļ
+         */
+        void await() throws InterruptedException {
+            mFinished.await();
+            mExecutor.shutdown();
+        }
+
+        private void scopeFinished() {
+            if (mPendingScopes.decrementAndGet() == 0) {
+                mFinished.countDown();
+            }
+        }
+
+        /**
+         * ȡͳһļʧʱڵǰ߳еȴԣȴڼ䲻ռôļ
+         */
+        private void readAndCompute(File file) {
+            try {
+                for (int failures = 0; ; failures++) {
+                    String error = tryReadAndCompute(file);
+                    if (error == null) {
+                        return;
+                    }
+                    if (failures >= mMaxRetries) {
+                        quarantine(file, error);
+                        return;
+                    }
+                    Thread.sleep(RETRY_BACKOFF_MILLIS << Math.min(failures, 10));
+                }
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * @return ȡʧʱشϢ
+         */
+        private String tryReadAndCompute(File file) throws InterruptedException {
+            mOpenFiles.acquireUninterruptibly();
+            try {
+                ByteBuffer content = null;
+                if (file.length() < MAP_THRESHOLD && !ArchiveEntry.isArchive(file.getName())
+                        && !(file instanceof FileChunk)) {
+                    //Ķȡֻռ̣߳ļȻ SymbolWorker ӳȡ
+                    long readStart = System.nanoTime();
+                    content = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+                    mMetrics.readNanos.add(System.nanoTime() - readStart);
+                }
+                SymbolWorker worker = mIdleWorkers.take();
+                try {
+                    return worker.computeFile(file, content) ? null : worker.mLastError;
+                } finally {
+                    mIdleWorkers.put(worker);
+                }
+            } catch (IOException e) {
+                return e.toString();
+            } finally {
+                mOpenFiles.release();
+            }
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor()л Java 21 ʱΪ null
+     */
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private static Method findVirtualThreadExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * ÿһ̵̳߳߳أʱѾȷл֧
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * ַ̣߳Ӷȡһļ SymbolWorker ͳ
+     */
+    private class ComputeSymbolThread extends Thread {
+
+        private CountDownLatch mCountDown;
+        private FileQueue mFileQueue;
+        private final SymbolWorker mWorker;
+        private final WorkerPool mPool;
+        /**
+         * ߳ mPool еı
+         */
+        private final int mIndex;
+
+        ComputeSymbolThread(FileQueue fileQueue, CountDownLatch countDown, SymbolWorker worker,
+                            WorkerPool pool, int index) {
+            this.mFileQueue = fileQueue;
+            this.mCountDown = countDown;
+            this.mWorker = worker;
+            this.mPool = pool;
+            this.mIndex = index;
+        }
+
+        @Override
+        public void run() {
+            try {
+                //ԤʱǰһһļǰѾȡһһļԤ
+                List<? extends File> batch = null;
+                AsyncReader.Pending next = null;
+                while (true) {
+                    if (batch == null) {
+                        //Ѿȡһļʱͣ߳̿һֱȲЩļ
+                        mPool.awaitTurn(mIndex);
+                        batch = takeBatch();
+                        if (batch == null) {
+                            //ѹرգ̣ͣ߳߳Ҳ˳
+                            mPool.finish();
+                            return;
+                        }
+                        next = prefetch(batch.get(0));
+                    }
+                    List<? extends File> following = null;
+                    for (int i = 0; i < batch.size(); i++) {
+                        File file = batch.get(i);
+                        AsyncReader.Pending current = next;
+                        //ȿʼȡһļٴǰļһļʱȴȡһ
+                        if (i + 1 < batch.size()) {
+                            next = prefetch(batch.get(i + 1));
+                        } else {
+                            following = mAsyncReader != null ? mFileQueue.poll() : null;
+                            next = following != null ? prefetch(following.get(0)) : null;
+                        }
+                        ByteBuffer content = null;
+                        if (current != null) {
+                            long readStart = System.nanoTime();
+                            content = current.await();
+                            mMetrics.readNanos.add(System.nanoTime() - readStart);
+                        }
+                        try {
+                            if (!mWorker.computeFile(file, content)) {
+                                retryLater(file, mWorker.mLastError);
+                            }
+                        } finally {
+                            if (current != null) {
+                                current.release();
+                            }
+                        }
+                        releasePending();
+                    }
+                    batch = following;
+                }
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            } finally {
+                mCountDown.countDown();
+            }
+        }
+
+        /**
+         * ʼԤһͨļԤԤʱ nullС޸ʱлļᱻȡҲԤ
+         */
+        private AsyncReader.Pending prefetch(File file) {
+            if (mAsyncReader == null || file instanceof FileChunk || file instanceof ArchiveEntry
+                    || ArchiveEntry.isArchive(file.getName())) {
+                return null;
+            }
+            if (mCache != null && mCache.lookup(file.getAbsolutePath(), file.length(), file.lastModified()) != null) {
+                return null;
+            }
+            return mAsyncReader.start(file);
+        }
+
+        /**
+         * ȡһļ¼ȴʱ
+         */
+        private List<? extends File> takeBatch() throws InterruptedException {
+            long cpuStart = currentThreadCpuTime();
+            long waitStart = System.nanoTime();
+            try {
+                return mFileQueue.take();
+            } finally {
+                mWorker.idleWaitNanos += System.nanoTime() - waitStart;
+                mWorker.idleCpuNanos += currentThreadCpuTime() - cpuStart;
+            }
+        }
+    }
+
+    /**
+     * ͳƵļʣִȡͼƬͬһʱֻܱһ߳ʹ
+     */
+    private class SymbolWorker implements WordTokenizer.Sink {
+
+        /**
+         * ǰ߳ʹõļshard ģʽΪ̶߳ռ
+         */
+        private WordCounter.Sink mCounter;
+        /**
+         * ֽڷִʣȡ߳ڸ
+         */
+        private final WordTokenizer mTokenizer = new WordTokenizer(this);
+        private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private final ContentHash mContentHash = new ContentHash();
+        /**
+         * ִͬʱÿһйΪ롢עͻУԻ
+         */
+        private final LineClassifier mClassifier = new LineClassifier();
+        private final LineClassifier.Summary mLineSummary = new LineClassifier.Summary();
+        private LineClassifier.Language mLanguage;
+        /**
+         * ǰļֶεĵʣȡɹżļУȡʧʱظ
+         */
+        private WordTable mWords;
+        /**
+         * ļִʱõĵʱֶεĵʱҪзֶɣÿε
+         */
+        private final WordTable mFileWords = new WordTable();
+        private int cacheHitCount = 0;
+        private int cacheMissCount = 0;
+        /**
+         * --tree ʱǰ̰߳ļм¼ĽԼǰļڵļ
+         */
+        private final DirectoryTree.Local mTree;
+        private DirectoryTree.Node mNode;
+        /**
+         * computeFile()  false ʱĴϢ
+         */
+        private String mLastError;
+        /**
+         * ǰ̵ָֻ߳꣬ɵǰ߳д
+         */
+        private final StatsMetrics.Worker mWorkerMetrics;
+        /**
+         * ǰ߳ͳƵĴ
+         */
+        private int codeLineCount = 0;
+        /**
+         * ȴеۼʱ䣨룩
+         */
+        long idleWaitNanos = 0;
+        /**
+         * ȴڼĵ CPU ʱ䣨룩ȴʱӦӽ 0
+         */
+        long idleCpuNanos = 0;
+
+        SymbolWorker() {
+            this.mCounter = mWordCounter.newWorkerCounter();
+            this.mWorkerMetrics = mMetrics.newWorker();
+            this.mTree = mTreeDepth >= 0 && mTreeRoot != null ? new DirectoryTree.Local() : null;
+        }
+
+        /**
+         * ¼һļ
+         */
+        private void addLines(long lineCount, long blankLines, long commentLines, long codeLines) {
+            mLineSummary.add(mLanguage, blankLines, commentLines, codeLines);
+            codeLineCount += lineCount;
+            if (mNode != null) {
+                mNode.addFile(lineCount, blankLines, commentLines, codeLines);
+            }
+        }
+
+        /**
+         * ͳһļ
+         *
+         * @param content ѾڴļݣΪ null ʱɵǰ̶߳ȡ
+         * @return ȡʧܡʱ falseϢ mLastError
+         */
+        boolean computeFile(File file, ByteBuffer content) {
+            if (file instanceof FileChunk) {
+                return computeChunk((FileChunk) file);
+            }
+            if (content == null && ArchiveEntry.isArchive(file.getName())) {
+                computeArchive(file);
+                return true;
+            }
+            long start = System.nanoTime();
+            mWorkerMetrics.busySince = start;
+            FileChannel channel = null;
+            mLanguage = LineClassifier.Language.of(file.getName());
+            mNode = mTree != null ? mTree.node(treePath(file)) : null;
+            try {
+                long size;
+                if (content == null && file instanceof ArchiveEntry) {
+                    content = ByteBuffer.wrap(((ArchiveEntry) file).read());
+                }
+                if (content == null) {
+                    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                    size = channel.size();
+                    //ʹûʱҪļĵʱз
+                    if (mCache == null && size > mChunkSize && splitFile(file, channel, size)) {
+                        return true;
+                    }
+                } else {
+                    size = content.remaining();
+                }
+                long lineCount;
+                if (mCache == null && !mDedup) {
+                    readFile(channel, content, size, true, false);
+                    lineCount = mTokenizer.getLineCount();
+                    addLines(lineCount, mClassifier.getBlankLines(), mClassifier.getCommentLines(),
+                            mClassifier.getCodeLines());
+                    addWords(mFileWords);
+                } else {
+                    lineCount = computeFileWithCache(file, channel, content, size);
+                }
+                mMetrics.filesProcessed.increment();
+                mMetrics.linesCounted.add(lineCount);
+                return true;
+            } catch (SkippedFileException e) {
+                mFileCount.decrementAndGet();
+                if (e.binary) {
+                    mMetrics.filesBinary.increment();
+                } else {
+                    mMetrics.filesUndecodable.increment();
+                    mOut.println(String.format("%s: %s", file.getPath(), e.getMessage()));
+                }
+                return true;
+            } catch (Exception e) {
+                if (file instanceof ArchiveEntry) {
+                    //ѹеĿѾͷţ
+                    quarantine(file, e.toString());
+                    return true;
+                }
+                mLastError = e.toString();
+                return false;
+            } finally {
+                if (file instanceof ArchiveEntry) {
+                    ((ArchiveEntry) file).release();
+                }
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException e1) {
+                        mOut.println(e1.toString());
+                    }
+                }
+                mWorkerMetrics.busyNanos += System.nanoTime() - start;
+                mWorkerMetrics.busySince = 0;
+            }
+        }
+
+        /**
+         * ѴļзΪηУÿδԼ mChunkSize
+         *
+         * @return ļҪļҲʵзλʱ falseļ
+         */
+        private boolean splitFile(File file, FileChannel channel, long size) throws IOException {
+            mBuffer.clear();
+            channel.read(mBuffer, 0);
+            mBuffer.flip();
+            Charset charset = TextSniffer.detect(mBuffer, mCharset);
+            if (charset == null || !TextSniffer.isAsciiCompatible(charset)) {
+                return false;
+            }
+            List<Long> bounds = new ArrayList<>();
+            bounds.add(0L);
+            long previous = 0;
+            for (long target = mChunkSize; target < size; target += mChunkSize) {
+                long boundary = nextLineStart(channel, Math.max(target, previous), size);
+                if (boundary > previous && boundary < size) {
+                    bounds.add(boundary);
+                    previous = boundary;
+                }
+            }
+            bounds.add(size);
+            if (bounds.size() < 3) {
+                return false;
+            }
+            long[] array = new long[bounds.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = bounds.get(i);
+            }
+            FileChunk.Parts parts = new FileChunk.Parts(file, array);
+            List<FileChunk> chunks = new ArrayList<>(parts.size());
+            for (int i = 0; i < parts.size(); i++) {
+                chunks.add(new FileChunk(parts, i));
+            }
+            if (mVirtualReader != null) {
+                mVirtualReader.submitDirectory(new ArrayList<File>(chunks));
+            } else {
+                addChunksToQueue(chunks);
+            }
+            return true;
         }
-    }
 
-    /**
-     * ַ߳
-     */
-    private class ComputeSymbolThread extends Thread {
+        /**
+         *  position ʼһеĿͷ\n ֮󣩣ֻ MAX_LINE_SEARCH ֽڣҲʱ -1
+         */
+        private long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+            long end = Math.min(size, position + MAX_LINE_SEARCH);
+            while (position < end) {
+                mBuffer.clear();
+                int read = channel.read(mBuffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (mBuffer.get(i) == '\n') {
+                        return position + i + 1;
+                    }
+                }
+                position += read;
+            }
+            return -1;
+        }
 
-        private CountDownLatch mCountDown;
-        private LinkedBlockingQueue<File> mFileQueue;
         /**
-         * ǰ߳ͳƵĴ
+         * ͳƴļһΣȱڷֶУзӴ뿪ʼɵһθ
          */
-        private int codeLineCount = 0;
+        private boolean computeChunk(FileChunk chunk) {
+            long start = System.nanoTime();
+            mWorkerMetrics.busySince = start;
+            FileChunk.Parts parts = chunk.parts;
+            mLanguage = LineClassifier.Language.of(parts.file.getName());
+            try (FileChannel channel = FileChannel.open(parts.file.toPath(), StandardOpenOption.READ)) {
+                mWords = new WordTable();
+                mTokenizer.reset();
+                mClassifier.reset(mLanguage);
+                readRange(channel, chunk.start, chunk.end, true);
+                parts.words[chunk.index] = mWords;
+                if (parts.complete(chunk.index, 0, mClassifier.getCarry(), mTokenizer.getLineCount(),
+                        mClassifier.getBlankLines(), mClassifier.getCommentLines(), mClassifier.getCodeLines())) {
+                    finishChunks(parts, channel);
+                }
+                return true;
+            } catch (IOException e) {
+                mLastError = e.toString();
+                return false;
+            } finally {
+                mWorkerMetrics.busyNanos += System.nanoTime() - start;
+                mWorkerMetrics.busySince = 0;
+            }
+        }
 
-        ComputeSymbolThread(LinkedBlockingQueue<File> fileQueue, CountDownLatch countDown) {
-            this.mFileQueue = fileQueue;
-            this.mCountDown = countDown;
+        /**
+         * зֶζɣ˳򴫵з״̬һνעͻַеķֶз࣬Ȼ͵
+         */
+        private void finishChunks(FileChunk.Parts parts, FileChannel channel) throws IOException {
+            int carry = 0;
+            long lineCount = 0;
+            long blankLines = 0;
+            long commentLines = 0;
+            long codeLines = 0;
+            for (int i = 0; i < parts.size(); i++) {
+                if (parts.startCarry[i] != carry) {
+                    mClassifier.reset(mLanguage, carry);
+                    readRange(channel, parts.bounds[i], parts.bounds[i + 1], false);
+                    parts.complete(i, carry, mClassifier.getCarry(), parts.lines[i], mClassifier.getBlankLines(),
+                            mClassifier.getCommentLines(), mClassifier.getCodeLines());
+                }
+                carry = parts.endCarry[i];
+                lineCount += parts.lines[i];
+                blankLines += parts.blank[i];
+                commentLines += parts.comment[i];
+                codeLines += parts.code[i];
+            }
+            mNode = mTree != null ? mTree.node(treePath(parts.file)) : null;
+            addLines(lineCount, blankLines, commentLines, codeLines);
+            for (int i = 0; i < parts.size(); i++) {
+                addWords(parts.words[i]);
+                parts.words[i] = null;
+            }
+            mMetrics.filesProcessed.increment();
+            mMetrics.linesCounted.add(lineCount);
         }
 
-        @Override
-        public void run() {
-            while (true) {
-                File file = mFileQueue.poll();
-                try {
-                    if (file == null) {
-                        if (loopEnd) {
-                            mCountDown.countDown();
-                            return;
-                        } else {
-                            continue;
-                        }
+        /**
+         * ӳ䲢ͳļеһ
+         *
+         * @param tokenize ǷִʣΪ false ʱֻз
+         */
+        private void readRange(FileChannel channel, long from, long to, boolean tokenize) throws IOException {
+            long start = System.nanoTime();
+            for (long position = from; position < to; position += MAP_CHUNK_SIZE) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position, Math.min(MAP_CHUNK_SIZE, to - position));
+                int capacity = mapped.capacity();
+                for (int offset = 0; offset < capacity; offset += READ_BUFFER_SIZE * 16) {
+                    int end = Math.min(capacity, offset + READ_BUFFER_SIZE * 16);
+                    mapped.limit(end).position(offset);
+                    if (tokenize) {
+                        mTokenizer.feed(mapped);
+                        mMetrics.bytesRead.add(end - offset);
                     }
-                    BufferedReader reader = null;
-                    FileReader fileReader = null;
-                    try {
-                        fileReader = new FileReader(file);
-                        reader = new BufferedReader(fileReader);
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            codeLineCount++;
-                            line = line.trim();
-                            if (line.length() > 0) {
-                                if (line.contains(" ")) {
-                                    String[] symbolArray = line.split(" ");
-                                    for (String symbol : symbolArray) {
-                                        addWordToMap(symbol);
-                                    }
-                                } else {
-                                    addWordToMap(line);
-                                }
-                            }
-                        }
-                    } catch (IOException e) {
-                        System.out.println(e.toString());
-                        mFileCount--;
-                        addFileToQueue(file);
+                    mClassifier.feed(mapped);
+                }
+            }
+            if (tokenize) {
+                mTokenizer.finish();
+            }
+            mClassifier.finish();
+            mMetrics.tokenizeNanos.add(System.nanoTime() - start);
+        }
+
+        /**
+         * ͳѹеļѹļ
+         * ѹȡĿɶ߳ͬʱ߳ģʽڵǰ̴߳
+         * Ƕ׵ѹֻ˳ȡڵǰ̴߳
+         */
+        private void computeArchive(File file) {
+            mFileCount.decrementAndGet();
+            try {
+                if (file instanceof ArchiveEntry) {
+                    try (InputStream in = ((ArchiveEntry) file).open()) {
+                        computeNestedArchive(file.getPath(), new ZipInputStream(in));
                     } finally {
-                        if (reader != null) {
-                            try {
-                                reader.close();
-                            } catch (IOException e1) {
-                                System.out.println(e1.toString());
-                            }
+                        ((ArchiveEntry) file).release();
+                    }
+                    return;
+                }
+                ArchiveEntry.Archive archive = new ArchiveEntry.Archive(file);
+                try {
+                    Enumeration<? extends ZipEntry> entries = archive.zipFile.entries();
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        String name = entry.getName();
+                        String fileName = name.substring(name.lastIndexOf('/') + 1);
+                        if (entry.isDirectory() || !(filterFileName(fileName) || ArchiveEntry.isArchive(fileName))) {
+                            continue;
                         }
-                        if (fileReader != null) {
-                            try {
-                                fileReader.close();
-                            } catch (IOException e1) {
-                                System.out.println(e1.toString());
-                            }
+                        ArchiveEntry archiveEntry = new ArchiveEntry(file.getAbsolutePath() + "!/" + name, archive, entry);
+                        if (mVirtualReader == null) {
+                            mMetrics.filesDiscovered.increment();
+                            addFileToQueue(archiveEntry);
+                        } else {
+                            computeArchiveEntry(archiveEntry);
                         }
                     }
-                } catch (Exception e) {
-                    System.out.println(e.toString());
-                    mFileCount--;
-                    addFileToQueue(file);
+                } finally {
+                    archive.release();
+                }
+            } catch (IOException e) {
+                //𻵵ѹҲ޷ȡֱ
+                mOut.println(e.toString());
+            }
+        }
+
+        /**
+         * ˳ȡǶ׵ѹin ᱻر
+         */
+        private void computeNestedArchive(String path, ZipInputStream in) throws IOException {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                String name = entry.getName();
+                String fileName = name.substring(name.lastIndexOf('/') + 1);
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                if (ArchiveEntry.isArchive(fileName)) {
+                    computeNestedArchive(path + "!/" + name, new ZipInputStream(in));
+                } else if (filterFileName(fileName)) {
+                    computeArchiveEntry(new ArchiveEntry(path + "!/" + name, in.readAllBytes(), entry.getTime()));
+                }
+            }
+        }
+
+        /**
+         * ڵǰ߳ͳѹеĿʽеļͬȼļ
+         * ļȱʱ computeFile() ȥȡʧܵĿѾͷţԣֱӸ
+         */
+        private void computeArchiveEntry(ArchiveEntry entry) {
+            mMetrics.filesDiscovered.increment();
+            mFileCount.incrementAndGet();
+            if (!computeFile(entry, null)) {
+                quarantine(entry, mLastError);
+            }
+        }
+
+        /**
+         * ʹûĽûʱִʣȥʱȲͬݵĽ¼棻ʹûʱֻȥ
+         *
+         * @return ļ
+         */
+        private long computeFileWithCache(File file, FileChannel channel, ByteBuffer content, long size)
+                throws IOException {
+            String cacheKey = file.getAbsolutePath();
+            long lastModified = file.lastModified();
+            StatsCache.Entry entry = mCache != null ? mCache.lookup(cacheKey, size, lastModified) : null;
+            if (entry == null && mCache != null && mCacheHash) {
+                //޸ʱ仯ݿû䣬ȼϣپǷҪ·ִ
+                StatsCache.Entry previous = mCache.previous(cacheKey);
+                if (previous != null && previous.size == size && !previous.binary) {
+                    readFile(channel, content, size, false, true);
+                    if (mContentHash.getValue() == previous.hash) {
+                        entry = previous.touch(size, lastModified);
+                    }
+                }
+            }
+            if (entry != null) {
+                cacheHitCount++;
+            } else {
+                if (mCache != null) {
+                    cacheMissCount++;
+                }
+                try {
+                    entry = mDedup ? dedupEntry(channel, content, size, lastModified)
+                            : tokenizeEntry(channel, content, size, lastModified);
+                } catch (SkippedFileException e) {
+                    if (e.binary && mCache != null) {
+                        mCache.record(cacheKey, StatsCache.Entry.binary(size, lastModified));
+                    }
+                    throw e;
+                }
+            }
+            if (entry.binary) {
+                mCache.record(cacheKey, entry);
+                throw new SkippedFileException(true, "binary file");
+            }
+            addLines(entry.lineCount, entry.blankLines, entry.commentLines,
+                    entry.lineCount - entry.blankLines - entry.commentLines);
+            for (int i = 0; i < entry.words.length; i++) {
+                mCounter.add(entry.words[i], entry.counts[i]);
+                if (mNode != null) {
+                    mNode.words.add(entry.words[i], entry.counts[i]);
+                }
+            }
+            if (mCache != null) {
+                mCache.record(cacheKey, entry);
+            }
+            return entry.lineCount;
+        }
+
+        /**
+         * ͬļĽûʱִʲǼǣ֮ͬݵļʹ
+         */
+        private StatsCache.Entry dedupEntry(FileChannel channel, ByteBuffer content, long size, long lastModified)
+                throws IOException {
+            CompletableFuture<Void> first = new CompletableFuture<>();
+            CompletableFuture<Void> sameSize = mDedupSizes.putIfAbsent(size, first);
+            if (sameSize == null) {
+                //һôļ֮ǰļִͬʵͬʱϣҪһ
+                try {
+                    StatsCache.Entry entry = tokenizeEntry(channel, content, size, lastModified);
+                    mDedupEntries.putIfAbsent(dedupKey(size, entry.hash), CompletableFuture.completedFuture(entry));
+                    mMetrics.bytesUnique.add(size);
+                    return entry;
+                } finally {
+                    first.complete(null);
+                }
+            }
+            readFile(channel, content, size, false, true);
+            String key = dedupKey(size, mContentHash.getValue());
+            //ȴͬСĵһļǼǣܾͬ
+            sameSize.join();
+            CompletableFuture<StatsCache.Entry> own = new CompletableFuture<>();
+            CompletableFuture<StatsCache.Entry> existing = mDedupEntries.putIfAbsent(key, own);
+            if (existing != null) {
+                try {
+                    StatsCache.Entry entry = existing.join();
+                    mMetrics.filesDuplicate.increment();
+                    mMetrics.bytesDuplicate.add(size);
+                    return entry.touch(size, lastModified);
+                } catch (CompletionException e) {
+                    //ڷִʵ̶߳ȡʧܣԼִ
+                    return tokenizeEntry(channel, content, size, lastModified);
+                }
+            }
+            try {
+                StatsCache.Entry entry = tokenizeEntry(channel, content, size, lastModified);
+                own.complete(entry);
+                mMetrics.bytesUnique.add(size);
+                return entry;
+            } catch (IOException | RuntimeException e) {
+                mDedupEntries.remove(key, own);
+                own.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        /**
+         * ͬԲͬļע﷨ͬзĽܹãҲǼһ
+         */
+        private String dedupKey(long size, long hash) {
+            return Long.toHexString(hash) + "/" + size + "/" + mLanguage.name();
+        }
+
+        /**
+         * ִʲɵļͳƼ¼ʲ
+         */
+        private StatsCache.Entry tokenizeEntry(FileChannel channel, ByteBuffer content, long size, long lastModified)
+                throws IOException {
+            boolean hash = mCacheHash || mDedup;
+            readFile(channel, content, size, true, hash);
+            String[] words = new String[mFileWords.size()];
+            long[] counts = new long[words.length];
+            WordTable.Cursor cursor = mFileWords.cursor();
+            for (int i = 0; cursor.next(); i++) {
+                words[i] = cursor.word();
+                counts[i] = cursor.count();
+            }
+            return new StatsCache.Entry(size, lastModified, hash ? mContentHash.getValue() : 0,
+                    mTokenizer.getLineCount(), mClassifier.getBlankLines(), mClassifier.getCommentLines(),
+                    words, counts);
+        }
+
+        /**
+         * ģʽͳһ仯ļֻظ
+         */
+        StatsCache.Entry countFile(File file) throws IOException {
+            mLanguage = LineClassifier.Language.of(file.getName());
+            if (file instanceof ArchiveEntry) {
+                byte[] content = ((ArchiveEntry) file).read();
+                return tokenizeEntry(null, ByteBuffer.wrap(content), content.length, file.lastModified());
+            }
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                return tokenizeEntry(channel, null, channel.size(), file.lastModified());
+            }
+        }
+
+        /**
+         * ȡļִʺͼݹϣ
+         *
+         * @param content ѾڴļݣΪ null ʱٶȡ channel
+         */
+        private void readFile(FileChannel channel, ByteBuffer content, long size, boolean tokenize, boolean hash)
+                throws IOException {
+            mTokenizer.reset();
+            mClassifier.reset(mLanguage);
+            mContentHash.reset();
+            if (tokenize) {
+                mFileWords.clear();
+                mWords = mFileWords;
+            }
+            long readNanos = 0;
+            long start = System.nanoTime();
+            //ȼ鿪ͷһΣļֱ ASCII ݵıٷִ
+            ByteBuffer head = content;
+            if (head == null) {
+                mBuffer.clear();
+                channel.read(mBuffer, 0);
+                mBuffer.flip();
+                head = mBuffer;
+                readNanos += System.nanoTime() - start;
+            }
+            Charset charset = TextSniffer.detect(head, mCharset);
+            if (charset == null) {
+                throw new SkippedFileException(true, "binary file");
+            }
+            if (!TextSniffer.isAsciiCompatible(charset)) {
+                readDecoded(channel, content, charset, tokenize, hash);
+                mMetrics.bytesRead.add(size);
+            } else if (content != null) {
+                consume(content, tokenize, hash);
+                mMetrics.bytesRead.add(size);
+            } else if (size >= MAP_THRESHOLD) {
+                //ļֱӳ䵽ڴ棬ֶӳⳬ 2G ƣȡڷִʱ
+                for (long position = 0; position < size; position += MAP_CHUNK_SIZE) {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                            position, Math.min(MAP_CHUNK_SIZE, size - position));
+                    //Сδʹܼʱ
+                    int capacity = mapped.capacity();
+                    for (int offset = 0; offset < capacity; offset += READ_BUFFER_SIZE * 16) {
+                        int end = Math.min(capacity, offset + READ_BUFFER_SIZE * 16);
+                        mapped.limit(end).position(offset);
+                        consume(mapped, tokenize, hash);
+                        mMetrics.bytesRead.add(end - offset);
+                    }
+                }
+            } else {
+                //ͷһѾ mBuffer
+                long position = mBuffer.remaining();
+                consume(mBuffer, tokenize, hash);
+                mMetrics.bytesRead.add(position);
+                mBuffer.clear();
+                int read;
+                long readStart = System.nanoTime();
+                while ((read = channel.read(mBuffer, position)) >= 0) {
+                    readNanos += System.nanoTime() - readStart;
+                    position += read;
+                    mBuffer.flip();
+                    consume(mBuffer, tokenize, hash);
+                    mBuffer.clear();
+                    mMetrics.bytesRead.add(read);
+                    readStart = System.nanoTime();
                 }
+                readNanos += System.nanoTime() - readStart;
             }
+            mTokenizer.finish();
+            mClassifier.finish();
+            mMetrics.readNanos.add(readNanos);
+            mMetrics.tokenizeNanos.add(System.nanoTime() - start - readNanos);
         }
 
-        private void addWordToMap(String str) {
-            if (isLetter(str)) {
-                synchronized (hitSymbolMap) {
-                    int count;
-                    if (hitSymbolMap.containsKey(str)) {
-                        count = hitSymbolMap.get(str) + 1;
-                    } else {
-                        count = 1;
+        /**
+         * ٷִʡִʺзֻ ASCII ַ ASCII ַͳһ滻Ϊһ 0x7F ֽڣ
+         * ҪٱΪ UTF-8
+         */
+        private void readDecoded(FileChannel channel, ByteBuffer content, Charset charset, boolean tokenize,
+                                 boolean hash) throws IOException {
+            InputStream in;
+            if (content != null) {
+                byte[] bytes = new byte[content.remaining()];
+                content.duplicate().get(bytes);
+                in = new ByteArrayInputStream(bytes);
+            } else {
+                in = Channels.newInputStream(channel.position(0));
+            }
+            CharsetDecoder decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            Reader reader = new InputStreamReader(in, decoder);
+            char[] chars = new char[READ_BUFFER_SIZE];
+            ByteBuffer narrow = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            byte[] bytes = narrow.array();
+            try {
+                int read;
+                while ((read = reader.read(chars)) >= 0) {
+                    for (int i = 0; i < read; i++) {
+                        char c = chars[i];
+                        bytes[i] = c < 0x80 ? (byte) c : (byte) 0x80;
                     }
-                    hitSymbolMap.put(str, count);
+                    narrow.limit(read).position(0);
+                    consume(narrow, tokenize, hash);
                 }
+            } catch (CharacterCodingException e) {
+                throw new SkippedFileException(false, "cannot be decoded as " + charset.name());
+            }
+        }
+
+        private void consume(ByteBuffer buffer, boolean tokenize, boolean hash) {
+            if (tokenize) {
+                mTokenizer.feed(buffer);
+                mClassifier.feed(buffer);
+            }
+            if (hash) {
+                mContentHash.update(buffer);
+            }
+        }
+
+        @Override
+        public void onWord(byte[] bytes, int offset, int length, int hash) {
+            mWords.add(bytes, offset, length, hash, 1);
+        }
+
+        /**
+         * Ѷȡɹļֶεĵʼ뵱ǰ̵߳ļڵļ
+         */
+        private void addWords(WordTable words) {
+            mCounter.addAll(words);
+            if (mNode != null) {
+                mNode.words.addAll(words);
             }
         }
 
         /**
-         * ȡǰ̼߳⵽Ĵ
+         * ȡ⵽Ĵ
          */
         int getCodeLineCount() {
             return codeLineCount;
         }
 
         /**
-         * жϵǰַǷĸ
+         * ȡȴеۼʱ
          */
-        private boolean isLetter(String str) {
-            if (str == null || str.length() <= 0 || str.trim().length() <= 0) {
-                return false;
+        long getIdleWaitNanos() {
+            return idleWaitNanos;
+        }
+
+        /**
+         * ȡȴڼĵ CPU ʱ
+         */
+        long getIdleCpuNanos() {
+            return idleCpuNanos;
+        }
+
+        LineClassifier.Summary getLineSummary() {
+            return mLineSummary;
+        }
+
+        int getCacheHitCount() {
+            return cacheHitCount;
+        }
+
+        int getCacheMissCount() {
+            return cacheMissCount;
+        }
+    }
+
+    /**
+     * ͳƵļļ޷ָļҪ
+     */
+    private static final class SkippedFileException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final boolean binary;
+
+        SkippedFileException(boolean binary, String message) {
+            super(message);
+            this.binary = binary;
+        }
+    }
+
+    /**
+     * Ѽļڱʱ״̬
+     */
+    private static final class WatchedDir {
+        /**
+         * Ա· / β
+         */
+        final String relative;
+        /**
+         * ļ .gitignore Ĺ
+         */
+        final IgnoreRules rules;
+        final int depth;
+
+        WatchedDir(String relative, IgnoreRules rules, int depth) {
+            this.relative = relative;
+            this.rules = rules;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * ģʽ״ͳɺȴļ仯ÿ仯ֻͳƱ仯ļ
+     * ӽмȥļԭļ¼µļ¼
+     * .gitignore ı仯ӦõѾļ
+     */
+    private class DirectoryWatcher {
+        private final LiveStats live = new LiveStats();
+        private final SymbolWorker worker = new SymbolWorker();
+
+        DirectoryWatcher() {
+            for (Map.Entry<String, StatsCache.Entry> item : mCache.entries().entrySet()) {
+                if (!item.getValue().binary) {
+                    live.put(item.getKey(), item.getValue());
+                }
             }
-            char[] chars = str.toCharArray();
-            for (char c : chars) {
-                if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
-                    return false;
+        }
+
+        void run() throws InterruptedException {
+            while (true) {
+                WatchKey key = mWatchService.take();
+                long deadline = System.currentTimeMillis() + WATCH_BATCH_MILLIS;
+                Map<Path, WatchedDir> changed = new LinkedHashMap<>();
+                boolean overflow = false;
+                while (key != null) {
+                    Path dir = ((Path) key.watchable()).toAbsolutePath();
+                    WatchedDir watched = mWatchedDirs.get(dir);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else if (watched != null) {
+                            changed.put(dir.resolve((Path) event.context()), watched);
+                        }
+                    }
+                    if (!key.reset()) {
+                        //ļѱɾ
+                        mWatchedDirs.remove(dir);
+                    }
+                    key = System.currentTimeMillis() < deadline
+                            ? mWatchService.poll(WATCH_SETTLE_MILLIS, TimeUnit.MILLISECONDS) : null;
+                }
+                int updated = 0;
+                for (Map.Entry<Path, WatchedDir> item : changed.entrySet()) {
+                    updated += update(item.getKey(), item.getValue());
+                }
+                if (overflow) {
+                    updated += recheck();
+                }
+                if (updated > 0) {
+                    print(updated);
                 }
             }
-            return true;
+        }
+
+        /**
+         * һ½޸Ļɾļļ
+         *
+         * @param path   ·
+         * @param parent ڵļ
+         * @return ͳƽб仯ļ
+         */
+        private int update(Path path, WatchedDir parent) {
+            String key = path.toString();
+            String name = path.getFileName().toString();
+            String relative = parent.relative + name;
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (attributes.isSymbolicLink()) {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attributes.isDirectory()) {
+                        return 0;
+                    }
+                }
+            } catch (IOException e) {
+                //ѱɾļļлѹ
+                return (live.remove(key) ? 1 : 0) + live.removePrefix(key + File.separator)
+                        + live.removePrefix(key + "!/");
+            }
+            if (attributes.isDirectory()) {
+                if (mWatchedDirs.containsKey(path) || parent.depth >= mMaxDepth
+                        || (mUseGitignore && ".git".equals(name)) || isIgnored(parent.rules, relative, name, true)
+                        || !isSelectedDirectory(relative + "/")) {
+                    return 0;
+                }
+                return scanDirectory(path, parent.depth + 1, relative + "/", parent.rules);
+            }
+            boolean archive = mScanArchives && ArchiveEntry.isArchive(name);
+            if (!(filterFileName(name) || archive) || isIgnored(parent.rules, relative, name, false)
+                    || !isSelectedFile(relative)) {
+                return 0;
+            }
+            if (archive) {
+                return live.removePrefix(key + "!/") + countArchive(key);
+            }
+            StatsCache.Entry previous = live.get(key);
+            if (previous != null && previous.size == attributes.size()
+                    && previous.lastModified == attributes.lastModifiedTime().toMillis()) {
+                return 0;
+            }
+            try {
+                live.put(key, worker.countFile(path.toFile()));
+                return 1;
+            } catch (SkippedFileException e) {
+                return live.remove(key) ? 1 : 0;
+            } catch (IOException e) {
+                //дԭ޷ȡȴһα仯
+                mOut.println(e.toString());
+                return 0;
+            }
+        }
+
+        /**
+         * ½ļУʼͳļ
+         */
+        private int scanDirectory(Path dir, int depth, String relative, IgnoreRules rules) {
+            List<Path> items = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path item : stream) {
+                    items.add(item);
+                    if (mUseGitignore && ".gitignore".equals(item.getFileName().toString())) {
+                        rules = rules.child(relative, readIgnoreFile(item));
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                return 0;
+            }
+            WatchedDir watched = new WatchedDir(relative, rules, depth);
+            watchDirectory(dir, watched);
+            int count = 0;
+            for (Path item : items) {
+                count += update(item, watched);
+            }
+            return count;
+        }
+
+        /**
+         * ͳѹеļ˳ȡ
+         */
+        private int countArchive(String path) {
+            try (ZipInputStream in = new ZipInputStream(Files.newInputStream(Paths.get(path)))) {
+                return countNestedArchive(path, in);
+            } catch (IOException e) {
+                mOut.println(e.toString());
+                return 0;
+            }
+        }
+
+        private int countNestedArchive(String path, ZipInputStream in) throws IOException {
+            int count = 0;
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                String name = entry.getName();
+                String fileName = name.substring(name.lastIndexOf('/') + 1);
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                if (ArchiveEntry.isArchive(fileName)) {
+                    count += countNestedArchive(path + "!/" + name, new ZipInputStream(in));
+                } else if (filterFileName(fileName)) {
+                    ArchiveEntry archiveEntry = new ArchiveEntry(path + "!/" + name, in.readAllBytes(), entry.getTime());
+                    try {
+                        live.put(archiveEntry.getAbsolutePath(), worker.countFile(archiveEntry));
+                        count++;
+                    } catch (SkippedFileException e) {
+                        //ļͳ
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * ¼ʱʧ˲ֱ仯֪ļļ
+         */
+        private int recheck() {
+            mOut.println("\twatch events overflowed, checking all files");
+            int count = 0;
+            for (String path : live.paths()) {
+                int separator = path.indexOf("!/");
+                File file = new File(separator < 0 ? path : path.substring(0, separator));
+                if (!file.exists() && live.remove(path)) {
+                    count++;
+                }
+            }
+            for (Map.Entry<Path, WatchedDir> item : new ArrayList<>(mWatchedDirs.entrySet())) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(item.getKey())) {
+                    for (Path child : stream) {
+                        count += update(child, item.getValue());
+                    }
+                } catch (IOException | DirectoryIteratorException e) {
+                    //ļѱɾ
+                }
+            }
+            return count;
+        }
+
+        private void print(int updated) {
+            mOut.println(String.format("\n\t[%tT] %s files changed", new Date(), updated));
+            mOut.println(String.format("\t%s text files.", live.getFileCount()));
+            mOut.println(String.format("\t%s lines code.", live.getLineCount()));
+            printLanguages(live.getLineSummary());
+            WordCounter.TopWords topWords = new WordCounter.TopWords(mTopCount);
+            live.visitTop(mTopCount, topWords);
+            printTopWords(topWords.result());
         }
     }
 
     public static void main(String[] args) {
-        Stats stats = new Stats(args);
+        if (args.length > 0 && "daemon".equals(args[0])) {
+            StatsDaemon.serve(Arrays.copyOfRange(args, 1, args.length));
+        } else if (args.length > 0 && "client".equals(args[0])) {
+            StatsDaemon.request(Arrays.copyOfRange(args, 1, args.length));
+        } else {
+            new Stats(args).run();
+        }
     }
 }
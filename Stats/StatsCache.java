@@ -0,0 +1,310 @@
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ڴϵͳƻ棬¼ÿļкעʳִ
+ * ļĴС޸ʱ䶼ûб仯ʱֱʹûĽ
+ * <p>
+ * ļʽħ汾šָƣȻǵʱÿļļ¼
+ * ¼еĵԵʱ±걣棬־Ϊ䳤롣
+ */
+final class StatsCache {
+
+    private static final int MAGIC = 0x53544331;
+    /**
+     * ִʹ¼ʽ仯ʱҪ޸İ汾ţʹɵĻʧЧ
+     */
+    private static final int VERSION = 4;
+
+    /**
+     * ļͳƽ
+     */
+    static final class Entry {
+        final long size;
+        final long lastModified;
+        /**
+         * ļݹϣδʱΪ 0
+         */
+        final long hash;
+        final long lineCount;
+        /**
+         * кעΪ
+         */
+        final long blankLines;
+        final long commentLines;
+        final String[] words;
+        final long[] counts;
+        /**
+         * Ķļû͵ʣС޸ʱ䲻ʱҪٶȡͷж
+         */
+        final boolean binary;
+
+        Entry(long size, long lastModified, long hash, long lineCount, long blankLines, long commentLines,
+              String[] words, long[] counts) {
+            this(size, lastModified, hash, lineCount, blankLines, commentLines, words, counts, false);
+        }
+
+        private Entry(long size, long lastModified, long hash, long lineCount, long blankLines, long commentLines,
+                      String[] words, long[] counts, boolean binary) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.lineCount = lineCount;
+            this.blankLines = blankLines;
+            this.commentLines = commentLines;
+            this.words = words;
+            this.counts = counts;
+            this.binary = binary;
+        }
+
+        /**
+         * ļļ¼
+         */
+        static Entry binary(long size, long lastModified) {
+            return new Entry(size, lastModified, 0, 0, 0, 0, new String[0], new long[0], true);
+        }
+
+        /**
+         * ͬ޸ʱ仯ʱԪݺʹ
+         */
+        Entry touch(long size, long lastModified) {
+            return new Entry(size, lastModified, hash, lineCount, blankLines, commentLines, words, counts, binary);
+        }
+    }
+
+    private final Path file;
+    private final String fingerprint;
+    /**
+     * ϴбļ¼غֻ
+     */
+    private final Map<String, Entry> previous;
+    /**
+     * ͳƹļʱֻдⲿ֣ɾļȻ̭
+     */
+    private final ConcurrentHashMap<String, Entry> current = new ConcurrentHashMap<>();
+
+    private StatsCache(Path file, String fingerprint, Map<String, Entry> previous) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.previous = previous;
+    }
+
+    /**
+     * ػļļڡ𻵻ָ߲Ʋһʱһջ
+     *
+     * @param fingerprint ӰͳƽĲļ˹
+     */
+    static StatsCache load(Path file, String fingerprint) {
+        Map<String, Entry> previous = new HashMap<>();
+        if (Files.isRegularFile(file)) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+                if (in.readInt() == MAGIC && in.readInt() == VERSION && fingerprint.equals(in.readUTF())) {
+                    readEntries(in, previous);
+                }
+            } catch (IOException e) {
+                //ʱûл
+                previous.clear();
+            } finally {
+                closeQuietly(in);
+            }
+        }
+        return new StatsCache(file, fingerprint, previous);
+    }
+
+    /**
+     * 浽̵Ļ棬 --watch ģʽ¼¼ÿļͳƽ
+     */
+    static StatsCache inMemory(String fingerprint) {
+        return new StatsCache(null, fingerprint, new HashMap<String, Entry>());
+    }
+
+    /**
+     * ҴС޸ʱ䶼ûб仯Ļ¼
+     */
+    Entry lookup(String path, long size, long lastModified) {
+        Entry entry = previous.get(path);
+        if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+            return entry;
+        }
+        return null;
+    }
+
+    /**
+     * ϴеļ¼Ԫ
+     */
+    Entry previous(String path) {
+        return previous.get(path);
+    }
+
+    /**
+     * ¼еͳƽ
+     */
+    void record(String path, Entry entry) {
+        current.put(path, entry);
+    }
+
+    /**
+     * Աеļ¼Ϊϴεļ¼µĻ棬ػڴб
+     */
+    StatsCache carryOver() {
+        return new StatsCache(file, fingerprint, new HashMap<>(current));
+    }
+
+    /**
+     * ͳƹļļ¼
+     */
+    Map<String, Entry> entries() {
+        return Collections.unmodifiableMap(current);
+    }
+
+    /**
+     * дʱļ滻д;ʧܲƻԭл
+     */
+    void save() throws IOException {
+        if (file == null) {
+            return;
+        }
+        HashMap<String, Integer> dictionary = new HashMap<>();
+        for (Entry entry : current.values()) {
+            for (String word : entry.words) {
+                if (!dictionary.containsKey(word)) {
+                    dictionary.put(word, dictionary.size());
+                }
+            }
+        }
+        String[] words = new String[dictionary.size()];
+        for (Map.Entry<String, Integer> item : dictionary.entrySet()) {
+            words[item.getValue()] = item.getKey();
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint);
+            writeVarLong(out, words.length);
+            for (String word : words) {
+                writeString(out, word);
+            }
+            writeVarLong(out, current.size());
+            for (Map.Entry<String, Entry> item : current.entrySet()) {
+                Entry entry = item.getValue();
+                writeString(out, item.getKey());
+                writeVarLong(out, entry.size);
+                writeVarLong(out, entry.lastModified);
+                out.writeLong(entry.hash);
+                out.writeBoolean(entry.binary);
+                writeVarLong(out, entry.lineCount);
+                writeVarLong(out, entry.blankLines);
+                writeVarLong(out, entry.commentLines);
+                writeVarLong(out, entry.words.length);
+                for (int i = 0; i < entry.words.length; i++) {
+                    writeVarLong(out, dictionary.get(entry.words[i]));
+                    writeVarLong(out, entry.counts[i]);
+                }
+            }
+            out.close();
+            out = null;
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            closeQuietly(out);
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void readEntries(DataInputStream in, Map<String, Entry> entries) throws IOException {
+        String[] words = new String[(int) readVarLong(in)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = readString(in);
+        }
+        long entryCount = readVarLong(in);
+        for (long n = 0; n < entryCount; n++) {
+            String path = readString(in);
+            long size = readVarLong(in);
+            long lastModified = readVarLong(in);
+            long hash = in.readLong();
+            boolean binary = in.readBoolean();
+            long lineCount = readVarLong(in);
+            long blankLines = readVarLong(in);
+            long commentLines = readVarLong(in);
+            int wordCount = (int) readVarLong(in);
+            String[] entryWords = new String[wordCount];
+            long[] counts = new long[wordCount];
+            for (int i = 0; i < wordCount; i++) {
+                entryWords[i] = words[(int) readVarLong(in)];
+                counts[i] = readVarLong(in);
+            }
+            entries.put(path, new Entry(size, lastModified, hash, lineCount, blankLines, commentLines,
+                    entryWords, counts, binary));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 䳤룬ÿֽڱ 7 λλʾǷֽ
+     */
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                System.out.println(e.toString());
+            }
+        }
+    }
+}
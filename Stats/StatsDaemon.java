@@ -0,0 +1,223 @@
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * פͳػ̣ͨ Unix domain socket ʡȥÿ JVM  JIT Ԥȵʱ䣻
+ * ûָ --cache ʹñڴе棬ٴͳͬһļʱֻͳƱ仯ļ
+ * <p>
+ * ħͻ˵ĹĿ¼ÿӦͳƽıӹرձʾ
+ */
+final class StatsDaemon {
+
+    private static final int MAGIC = 0x53544431;
+    /**
+     * ػ˳
+     */
+    private static final String SHUTDOWN = "--shutdown";
+    /**
+     * ػֵ̲֧Ĳ--watch --progress ػ̵ı׼ǿͻ
+     */
+    private static final String[] UNSUPPORTED = {"--watch", "--progress"};
+
+    private final Path socket;
+    /**
+     * ͳĿӲָƵڴ滺棬ʹõĻʱƳͬһĿĲʹµĻ
+     */
+    private final ConcurrentHashMap<String, StatsCache> caches = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private ServerSocketChannel server;
+
+    private StatsDaemon(Path socket) {
+        this.socket = socket;
+    }
+
+    /**
+     * ػֱ̣յ --shutdown 
+     *
+     * @param args [--socket ļ]
+     */
+    static void serve(String[] args) {
+        Path socket = defaultSocket();
+        if (args.length == 2 && "--socket".equals(args[0])) {
+            socket = Paths.get(args[1]);
+        } else if (args.length != 0) {
+            System.out.println("÷java Stats daemon [--socket ļ]");
+            return;
+        }
+        try {
+            new StatsDaemon(socket).run();
+        } catch (IOException e) {
+            System.out.println(e.toString());
+        }
+    }
+
+    /**
+     * Ѳ͸ػ̲ػûʱڵǰͳ
+     *
+     * @param args [--socket ļ] ͳƲ--shutdown ػ˳
+     */
+    static void request(String[] args) {
+        Path socket = defaultSocket();
+        if (args.length >= 2 && "--socket".equals(args[0])) {
+            socket = Paths.get(args[1]);
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            if (args.length == 1 && SHUTDOWN.equals(args[0])) {
+                System.out.println("daemon is not running");
+                return;
+            }
+            System.err.println("daemon is not running, counting locally");
+            new Stats(args).run();
+            return;
+        }
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeUTF(System.getProperty("user.dir"));
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+            InputStream in = Channels.newInputStream(channel);
+            in.transferTo(System.out);
+            System.out.flush();
+        } catch (IOException e) {
+            System.out.println(e.toString());
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println(e.toString());
+            }
+        }
+    }
+
+    private static Path defaultSocket() {
+        return Paths.get(System.getProperty("java.io.tmpdir"), "stats-" + System.getProperty("user.name") + ".sock");
+    }
+
+    private void run() throws IOException {
+        if (Files.exists(socket)) {
+            if (isRunning()) {
+                System.out.println(String.format("daemon is already running on %s", socket));
+                return;
+            }
+            //ϴû˳µļ
+            Files.delete(socket);
+        }
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            try {
+                Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                //֧ POSIX Ȩ޵ļϵͳ
+            }
+            System.out.println(String.format("listening on %s", socket));
+            while (true) {
+                final SocketChannel channel = server.accept();
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        handle(channel);
+                    }
+                });
+            }
+        } catch (ClosedChannelException e) {
+            //յ --shutdown 
+        } finally {
+            server.close();
+            executor.shutdown();
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    private boolean isRunning() {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+            Path workingDir = Paths.get(in.readUTF());
+            String[] args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = in.readUTF();
+            }
+            PrintStream out = new PrintStream(new BufferedOutputStream(Channels.newOutputStream(channel)),
+                    false, "UTF-8");
+            if (args.length == 1 && SHUTDOWN.equals(args[0])) {
+                out.println("daemon stopped");
+                out.flush();
+                server.close();
+                return;
+            }
+            for (String unsupported : UNSUPPORTED) {
+                if (Arrays.asList(args).contains(unsupported)) {
+                    out.println(String.format("%s is not supported by the daemon", unsupported));
+                    out.flush();
+                    return;
+                }
+            }
+            Stats stats = new Stats(args, out, workingDir);
+            String key = stats.getCacheKey();
+            StatsCache cache = null;
+            if (key != null) {
+                cache = caches.remove(key);
+                if (cache == null) {
+                    cache = StatsCache.inMemory(stats.getFingerprint());
+                }
+                stats.setDaemonCache(cache);
+            }
+            try {
+                stats.run();
+            } finally {
+                if (cache != null) {
+                    caches.put(key, cache.carryOver());
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.out.println(e.toString());
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println(e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * йеͳָ꣬׶Σwalk / read / tokenize / merge¼
+ * Զʱѽȴӡ׼󣬻 JSON lines ʽдļ
+ */
+final class StatsMetrics {
+
+    final LongAdder dirsWalked = new LongAdder();
+    final LongAdder filesDiscovered = new LongAdder();
+    /**
+     * ԹųûбļУԼųļ
+     */
+    final LongAdder dirsPruned = new LongAdder();
+    final LongAdder filesIgnored = new LongAdder();
+    final LongAdder filesProcessed = new LongAdder();
+    /**
+     * Ķļ޷ļ
+     */
+    final LongAdder filesBinary = new LongAdder();
+    final LongAdder filesUndecodable = new LongAdder();
+    /**
+     * ԺȻ޷ȡбļ
+     */
+    final LongAdder filesFailed = new LongAdder();
+    final LongAdder bytesRead = new LongAdder();
+    /**
+     * --dedup ʱִʵļֽԼ֮ǰļֱͬʹýļ
+     */
+    final LongAdder bytesUnique = new LongAdder();
+    final LongAdder bytesDuplicate = new LongAdder();
+    final LongAdder filesDuplicate = new LongAdder();
+    final LongAdder linesCounted = new LongAdder();
+    /**
+     * ȴ read() صʱ䣬ڴӳļڷִʱȡ tokenize 
+     */
+    final LongAdder readNanos = new LongAdder();
+    final LongAdder tokenizeNanos = new LongAdder();
+
+    private final long startNanos = System.nanoTime();
+    private volatile long walkNanos = -1;
+    private volatile long mergeNanos = -1;
+    private final List<Worker> workers = new CopyOnWriteArrayList<>();
+    private volatile FileQueue queue;
+    private volatile BufferPool bufferPool;
+
+    private ScheduledExecutorService scheduler;
+    private PrintWriter metricsWriter;
+    private boolean printProgress;
+    /**
+     * һαʱݣڼ
+     */
+    private long lastNanos = startNanos;
+    private long lastBytes;
+    private long lastLines;
+    private long[] lastBusy = new long[0];
+
+    /**
+     * ̵ָֻ߳꣬ɸ߳д
+     */
+    static final class Worker {
+        /**
+         * Ѵļõʱ
+         */
+        volatile long busyNanos;
+        /**
+         * ڴļĿʼʱ䣬ʱΪ 0
+         */
+        volatile long busySince;
+
+        long busyNanos(long now) {
+            long since = busySince;
+            return busyNanos + (since != 0 ? now - since : 0);
+        }
+    }
+
+    Worker newWorker() {
+        Worker worker = new Worker();
+        workers.add(worker);
+        return worker;
+    }
+
+    void setQueue(FileQueue queue) {
+        this.queue = queue;
+    }
+
+    void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    void walkFinished() {
+        walkNanos = System.nanoTime() - startNanos;
+    }
+
+    void mergeFinished(long nanos) {
+        mergeNanos = nanos;
+    }
+
+    /**
+     * ʼʱ
+     *
+     * @param intervalSeconds 
+     * @param printProgress   Ƿѽȴӡ׼
+     * @param metricsPath     JSON lines ļ·Ϊ null ʱд
+     */
+    void start(int intervalSeconds, boolean printProgress, String metricsPath) throws IOException {
+        this.printProgress = printProgress;
+        if (metricsPath != null) {
+            metricsWriter = new PrintWriter(new OutputStreamWriter(
+                    new FileOutputStream(metricsPath), StandardCharsets.UTF_8));
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "stats-metrics");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                report(false);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * ֹͣʱ棬һ
+     */
+    void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        report(true);
+        if (metricsWriter != null) {
+            metricsWriter.close();
+        }
+    }
+
+    private synchronized void report(boolean finished) {
+        long now = System.nanoTime();
+        double seconds = Math.max(now - lastNanos, 1) / 1e9;
+        long elapsedMillis = (now - startNanos) / 1000000;
+        long bytes = bytesRead.sum();
+        long lines = linesCounted.sum();
+        long processed = filesProcessed.sum();
+        long discovered = filesDiscovered.sum();
+        FileQueue currentQueue = queue;
+        int queueSize = currentQueue == null ? 0 : currentQueue.size();
+        BufferPool currentPool = bufferPool;
+        double bytesPerSecond = (bytes - lastBytes) / seconds;
+        double linesPerSecond = (lines - lastLines) / seconds;
+
+        long[] busy = new long[workers.size()];
+        StringBuilder utilization = new StringBuilder();
+        for (int i = 0; i < busy.length; i++) {
+            busy[i] = workers.get(i).busyNanos(now);
+            long previous = i < lastBusy.length ? lastBusy[i] : 0;
+            double ratio = Math.max(0.0, Math.min(1.0, (busy[i] - previous) / 1e9 / seconds));
+            if (i > 0) {
+                utilization.append(',');
+            }
+            utilization.append(String.format(Locale.ROOT, "%.2f", ratio));
+        }
+
+        if (printProgress) {
+            System.err.println(String.format(Locale.ROOT,
+                    "[%ss] walk: %s dirs, %s files%s | read: %s/%s files, %.1f MB/s | %.0f lines/s | queue %s | workers %s",
+                    elapsedMillis / 1000,
+                    dirsWalked.sum(), discovered, walkNanos >= 0 ? " (done)" : "",
+                    processed, discovered, bytesPerSecond / 1024 / 1024,
+                    linesPerSecond, queueSize, utilization));
+        }
+        if (metricsWriter != null) {
+            metricsWriter.println(String.format(Locale.ROOT,
+                    "{\"time_ms\":%s,\"stage\":\"walk\",\"dirs\":%s,\"files\":%s,\"pruned_dirs\":%s,\"ignored_files\":%s,"
+                            + "\"done\":%s,\"walk_ms\":%s}",
+                    elapsedMillis, dirsWalked.sum(), discovered, dirsPruned.sum(), filesIgnored.sum(),
+                    walkNanos >= 0, Math.max(walkNanos, 0) / 1000000));
+            metricsWriter.println(String.format(Locale.ROOT,
+                    "{\"time_ms\":%s,\"stage\":\"read\",\"files\":%s,\"bytes\":%s,\"bytes_per_s\":%.0f,\"read_ms\":%s,\"queue\":%s,"
+                            + "\"binary_files\":%s,\"undecodable_files\":%s,\"failed_files\":%s,"
+                            + "\"pool_hits\":%s,\"pool_misses\":%s}",
+                    elapsedMillis, processed, bytes, bytesPerSecond, readNanos.sum() / 1000000, queueSize,
+                    filesBinary.sum(), filesUndecodable.sum(), filesFailed.sum(),
+                    currentPool == null ? 0 : currentPool.hits.sum(), currentPool == null ? 0 : currentPool.misses.sum()));
+            metricsWriter.println(String.format(Locale.ROOT,
+                    "{\"time_ms\":%s,\"stage\":\"tokenize\",\"lines\":%s,\"lines_per_s\":%.0f,\"tokenize_ms\":%s,\"utilization\":[%s]}",
+                    elapsedMillis, lines, linesPerSecond, tokenizeNanos.sum() / 1000000, utilization));
+            if (finished) {
+                metricsWriter.println(String.format(Locale.ROOT,
+                        "{\"time_ms\":%s,\"stage\":\"merge\",\"merge_ms\":%s}",
+                        elapsedMillis, Math.max(mergeNanos, 0) / 1000000));
+            }
+            metricsWriter.flush();
+        }
+        lastNanos = now;
+        lastBytes = bytes;
+        lastLines = lines;
+        lastBusy = busy;
+    }
+}
@@ -0,0 +1,152 @@
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * һͳƵĽǶʱ Stats.run() أҪı
+ */
+public final class StatsResult {
+
+    private final long fileCount;
+    private final long lineCount;
+    private final LineClassifier.Summary lineSummary;
+    private final long wordCount;
+    private final List<Map.Entry<String, Long>> topWords;
+    private final List<LanguageLines> languages;
+    private final long elapsedMillis;
+
+    StatsResult(long fileCount, long lineCount, LineClassifier.Summary lineSummary, long wordCount,
+                List<Map.Entry<String, Long>> topWords, long elapsedMillis) {
+        this.fileCount = fileCount;
+        this.lineCount = lineCount;
+        this.lineSummary = lineSummary;
+        this.wordCount = wordCount;
+        this.topWords = Collections.unmodifiableList(topWords);
+        List<LanguageLines> languages = new ArrayList<>();
+        for (LineClassifier.Language language : LineClassifier.Language.values()) {
+            int i = language.ordinal();
+            if (lineSummary.files[i] > 0) {
+                languages.add(new LanguageLines(language.label, lineSummary.files[i], lineSummary.blank[i],
+                        lineSummary.comment[i], lineSummary.code[i]));
+            }
+        }
+        this.languages = Collections.unmodifiableList(languages);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * ͳƵļ
+     */
+    public long getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * ļ
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * ļĿ
+     */
+    public long getBlankLines() {
+        return sum(lineSummary.blank);
+    }
+
+    /**
+     * ļע
+     */
+    public long getCommentLines() {
+        return sum(lineSummary.comment);
+    }
+
+    /**
+     * ļĴ
+     */
+    public long getCodeLines() {
+        return sum(lineSummary.code);
+    }
+
+    /**
+     * ͬʵĸƼʱΪ¼ĵʸ
+     */
+    public long getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * ִĵʣӴС
+     */
+    public List<Map.Entry<String, Long>> getTopWords() {
+        return topWords;
+    }
+
+    /**
+     * ͳƺʱλ
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Իֻܵļԣ˳ıͬ
+     */
+    public List<LanguageLines> getLanguages() {
+        return languages;
+    }
+
+    /**
+     * һԵļ͸
+     */
+    public static final class LanguageLines {
+
+        private final String language;
+        private final long fileCount;
+        private final long blankLines;
+        private final long commentLines;
+        private final long codeLines;
+
+        LanguageLines(String language, long fileCount, long blankLines, long commentLines, long codeLines) {
+            this.language = language;
+            this.fileCount = fileCount;
+            this.blankLines = blankLines;
+            this.commentLines = commentLines;
+            this.codeLines = codeLines;
+        }
+
+        /**
+         * Եĺ׺ javapy-f ָ׺Ϊ other
+         */
+        public String getLanguage() {
+            return language;
+        }
+
+        public long getFileCount() {
+            return fileCount;
+        }
+
+        public long getBlankLines() {
+            return blankLines;
+        }
+
+        public long getCommentLines() {
+            return commentLines;
+        }
+
+        public long getCodeLines() {
+            return codeLines;
+        }
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,798 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Լ죺ֽʵֵԭʵֻ崦ĽԱȣ CRLFƱûлзһС
+ *  ASCII ֽڵȱ߽Լɵ룻ȸıͳƹ̵Ĺ벻ʹʱͳƽԱȡ
+ * <p>
+ * Уjavac -encoding GBK *.java &amp;&amp; java StatsSelfCheckȫͨʱ okʧܵ벢 1 ˳
+ */
+final class StatsSelfCheck {
+
+    private static final String[] TOKENIZER_INPUTS = {
+            "",
+            "a",
+            "a\n",
+            "\n\n\n",
+            "hello world\r\nfoo bar\r\n",
+            "one\rtwo\r\rthree\n\r\n",
+            "\tindented\tline\t\n",
+            "tab\tinside words\n",
+            "  leading and trailing  \n",
+            "double  space   between\n",
+            "no newline at the end",
+            "last line after crlf\r\nend",
+            "x = y + 1;\n",
+            "caf\u00c3\u00a9 na\u00c3\u00afve word\n",
+            "\u00e4\u00b8\u00ad\u00e6\u0096\u0087 \u00e6\u00b3\u00a8\u00e9\u0087\u008a ascii\n",
+            "ctrl\u0000char word\u0001 \u0001word\n",
+            "Aa BB Aa\n",
+    };
+    /**
+     * ʹõֽڣֿհסĸĸͷ ASCII ֽ
+     */
+    private static final byte[] FUZZ_BYTES = {
+            'a', 'b', 'Z', ' ', ' ', '\t', '\r', '\n', '\u000b', '1', '_', '/', '*', '"', '#', '-', '\\',
+            (byte) 0xC3, (byte) 0xA9, (byte) 0xE4, 0,
+    };
+    private static final int FUZZ_COUNT = 2000;
+    /**
+     * зļͳʱӦõ {, ע, }
+     */
+    private static final Object[][] CLASSIFIER_INPUTS = {
+            {LineClassifier.Language.JAVA, "int a; /* start\r\n * middle\r\n */ int b;\r\n\r\n\t// line comment\r\n"
+                    + "String s = \"/* not a comment\";\r\nlast", new long[]{1, 2, 4}},
+            {LineClassifier.Language.JAVA, "/*\n * doc\n */\nint b;\n", new long[]{0, 3, 1}},
+            {LineClassifier.Language.C, "// \u00e6\u00b3\u00a8\u00e9\u0087\u008a\nint x = 1; /* \u00c3\u00a4\n \u00c3\u00b6 */\n",
+                    new long[]{0, 2, 1}},
+            {LineClassifier.Language.PYTHON, "\"\"\"doc\nmore\n\"\"\"\nx = 1  # c\n\n# only\n", new long[]{1, 4, 1}},
+            {LineClassifier.Language.PYTHON, "x = '''a\nb\n'''\ny", new long[]{0, 0, 4}},
+            {LineClassifier.Language.SQL, "-- c\nSELECT 1; -- t\n\t\n", new long[]{1, 1, 1}},
+            {LineClassifier.Language.PHP, "# c\r<?php echo 1; /* x */\r", new long[]{0, 1, 1}},
+    };
+    private static final byte[] CLASSIFIER_FUZZ_BYTES = {
+            '/', '*', '*', '"', '\'', '#', '-', '\\', 'a', ' ', '\t', '\r', '\n', '\n', (byte) 0xE4,
+    };
+    /**
+     * Թ򣺹򣨶 \n ָ·ǷΪļСǷӦ
+     */
+    private static final Object[][] IGNORE_CASES = {
+            {"*.log", "a.log", false, true},
+            {"*.log", "dir/b.log", false, true},
+            {"*.log", "a.logx", false, false},
+            {"build/", "build", true, true},
+            {"build/", "build", false, false},
+            {"build/", "src/build", true, true},
+            {"/build", "build", true, true},
+            {"/build", "src/build", true, false},
+            {"doc/*.txt", "doc/a.txt", false, true},
+            {"doc/*.txt", "doc/sub/a.txt", false, false},
+            {"doc/*.txt", "x/doc/a.txt", false, false},
+            {"**/foo", "foo", true, true},
+            {"**/foo", "a/b/foo", false, true},
+            {"a/**/b", "a/b", false, true},
+            {"a/**/b", "a/x/y/b", false, true},
+            {"a/**/b", "x/a/b", false, false},
+            {"logs/**", "logs/a", false, true},
+            {"logs/**", "logs/x/y", false, true},
+            {"logs/**", "logs", true, false},
+            {"*.log\n!keep.log", "keep.log", false, false},
+            {"*.log\n!keep.log", "x.log", false, true},
+            {"!keep.log\n*.log", "keep.log", false, true},
+            {"[ab].c", "a.c", false, true},
+            {"[ab].c", "c.c", false, false},
+            {"[!ab].c", "c.c", false, true},
+            {"?.java", "A.java", false, true},
+            {"?.java", "AB.java", false, false},
+            {"# comment", "# comment", false, false},
+            {"\\#file", "#file", false, true},
+            {"trailing  ", "trailing", false, true},
+    };
+
+    private static int failures;
+
+    private StatsSelfCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        checkTokenizer();
+        checkClassifier();
+        checkWordTable();
+        checkCache();
+        checkSketch();
+        checkArchives();
+        checkIgnoreRules();
+        checkPartials();
+        checkDedup();
+        if (failures > 0) {
+            System.out.println(failures + " checks failed");
+            System.exit(1);
+        }
+        System.out.println("ok");
+    }
+
+    /**
+     * WordTokenizer ԭ readLine() -> trim() -> split(" ") -> isLetter Աȵʼ
+     * 崫ԼзΪ buffer 
+     */
+    private static void checkTokenizer() throws IOException {
+        Random random = new Random(42);
+        for (String input : TOKENIZER_INPUTS) {
+            checkTokenizer(input.getBytes(StandardCharsets.ISO_8859_1), random);
+        }
+        for (int i = 0; i < FUZZ_COUNT; i++) {
+            checkTokenizer(fuzz(random, FUZZ_BYTES), random);
+        }
+    }
+
+    private static void checkTokenizer(byte[] input, Random random) throws IOException {
+        Map<String, Long> expected = new HashMap<>();
+        long expectedLines = baseline(input, expected);
+        Map<String, Long> words = new HashMap<>();
+        WordTokenizer tokenizer = new WordTokenizer((bytes, offset, length, hash) -> {
+            String word = new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+            if (word.hashCode() != hash) {
+                fail("tokenizer hash of " + word, input);
+            }
+            words.merge(word, 1L, Long::sum);
+        });
+        tokenizer.reset();
+        tokenizer.feed(ByteBuffer.wrap(input));
+        tokenizer.finish();
+        check("tokenizer words", input, expected, words);
+        check("tokenizer lines", input, expectedLines, tokenizer.getLineCount());
+
+        words.clear();
+        tokenizer.reset();
+        for (int[] piece : split(input.length, random)) {
+            tokenizer.feed(ByteBuffer.wrap(input, piece[0], piece[1] - piece[0]));
+        }
+        tokenizer.finish();
+        check("tokenizer words in pieces", input, expected, words);
+        check("tokenizer lines in pieces", input, expectedLines, tokenizer.getLineCount());
+    }
+
+    /**
+     * LineClassifier Աļͳ밴зֳɶΡ FileChunk ķʽ carry Ľ
+     * зֵ \n ֮󣬰עַ͡м
+     */
+    private static void checkClassifier() throws IOException {
+        Random random = new Random(42);
+        for (Object[] item : CLASSIFIER_INPUTS) {
+            LineClassifier.Language language = (LineClassifier.Language) item[0];
+            byte[] input = ((String) item[1]).getBytes(StandardCharsets.ISO_8859_1);
+            long[] whole = classify(language, 0, input, 0, input.length);
+            check("classifier " + language, input, toString((long[]) item[2]), toString(whole));
+            checkClassifier(language, input, whole, random);
+        }
+        for (int i = 0; i < FUZZ_COUNT; i++) {
+            LineClassifier.Language language = LineClassifier.Language.values()[i % LineClassifier.Language.values().length];
+            byte[] input = fuzz(random, CLASSIFIER_FUZZ_BYTES);
+            checkClassifier(language, input, classify(language, 0, input, 0, input.length), random);
+        }
+    }
+
+    private static void checkClassifier(LineClassifier.Language language, byte[] input, long[] whole, Random random)
+            throws IOException {
+        long lines = baseline(input, new HashMap<>());
+        check("classifier " + language + " line total", input, lines, whole[0] + whole[1] + whole[2]);
+        int[] lineStarts = new int[input.length + 1];
+        int count = 0;
+        lineStarts[count++] = 0;
+        for (int i = 0; i + 1 < input.length; i++) {
+            if (input[i] == '\n') {
+                lineStarts[count++] = i + 1;
+            }
+        }
+        int[] all = new int[count + 1];
+        System.arraycopy(lineStarts, 0, all, 0, count);
+        all[count] = input.length;
+        check("classifier " + language + " every line", input, toString(whole),
+                toString(classifyChunks(language, input, all)));
+        int[] some = new int[count + 1];
+        int size = 0;
+        some[size++] = 0;
+        for (int i = 1; i < count; i++) {
+            if (random.nextBoolean()) {
+                some[size++] = lineStarts[i];
+            }
+        }
+        some[size++] = input.length;
+        int[] bounds = new int[size];
+        System.arraycopy(some, 0, bounds, 0, size);
+        check("classifier " + language + " random chunks", input, toString(whole),
+                toString(classifyChunks(language, input, bounds)));
+    }
+
+    /**
+     *  Stats  FileChunk ķʽͬÿȼӴ뿪ʼȻ˳򴫵 carry費Ķͳ
+     *
+     * @param bounds ε㣬һԪΪĳ
+     */
+    private static long[] classifyChunks(LineClassifier.Language language, byte[] input, int[] bounds) {
+        int parts = bounds.length - 1;
+        long[][] results = new long[parts][];
+        for (int i = 0; i < parts; i++) {
+            results[i] = classify(language, 0, input, bounds[i], bounds[i + 1]);
+        }
+        long[] total = new long[3];
+        int carry = 0;
+        for (int i = 0; i < parts; i++) {
+            if (carry != 0) {
+                results[i] = classify(language, carry, input, bounds[i], bounds[i + 1]);
+            }
+            carry = (int) results[i][3];
+            for (int j = 0; j < 3; j++) {
+                total[j] += results[i][j];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return {, ע, , ʱ carry}
+     */
+    private static long[] classify(LineClassifier.Language language, int carry, byte[] input, int from, int to) {
+        LineClassifier classifier = new LineClassifier();
+        classifier.reset(language, carry);
+        classifier.feed(ByteBuffer.wrap(input, from, to - from));
+        classifier.finish();
+        return new long[]{classifier.getBlankLines(), classifier.getCommentLines(), classifier.getCodeLines(),
+                classifier.getCarry()};
+    }
+
+    private static String toString(long[] lines) {
+        return lines[0] + " blank, " + lines[1] + " comment, " + lines[2] + " code";
+    }
+
+    /**
+     * WordTable  HashMap ԱȣϣͬĲͬʣAa  BBݡϲպ
+     */
+    private static void checkWordTable() {
+        Random random = new Random(42);
+        WordTable table = new WordTable();
+        Map<String, Long> expected = new HashMap<>();
+        checkWordTable("empty", table, expected);
+        for (String word : new String[]{"Aa", "BB", "AaAa", "BBBB", "AaBB", "BBAa", "Aa"}) {
+            add(table, expected, word, 1);
+        }
+        checkWordTable("equal hashes", table, expected);
+
+        WordTable other = new WordTable();
+        Map<String, Long> otherExpected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            add(i % 2 == 0 ? table : other, i % 2 == 0 ? expected : otherExpected,
+                    randomWord(random), 1 + random.nextInt(3));
+        }
+        checkWordTable("grown", table, expected);
+        checkWordTable("grown other", other, otherExpected);
+        table.addAll(other);
+        otherExpected.forEach((word, count) -> expected.merge(word, count, Long::sum));
+        checkWordTable("merged", table, expected);
+
+        table.clear();
+        expected.clear();
+        checkWordTable("cleared", table, expected);
+        for (int i = 0; i < 1000; i++) {
+            add(table, expected, randomWord(random), 1);
+        }
+        checkWordTable("reused", table, expected);
+    }
+
+    private static void add(WordTable table, Map<String, Long> expected, String word, long count) {
+        byte[] bytes = ("  " + word).getBytes(StandardCharsets.ISO_8859_1);
+        table.add(bytes, 2, word.length(), word.hashCode(), count);
+        expected.merge(word, count, Long::sum);
+    }
+
+    /**
+     *  1  8 ĵʣĸԲظ
+     */
+    private static String randomWord(Random random) {
+        char[] chars = new char[1 + random.nextInt(8)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "abcdeXYZ".charAt(random.nextInt(8));
+        }
+        return new String(chars);
+    }
+
+    private static void checkWordTable(String name, WordTable table, Map<String, Long> expected) {
+        byte[] input = name.getBytes(StandardCharsets.ISO_8859_1);
+        check("word table size", input, expected.size(), table.size());
+        Map<String, Long> words = new HashMap<>();
+        WordTable.Cursor cursor = table.cursor();
+        while (cursor.next()) {
+            String word = cursor.word();
+            if (word.hashCode() != cursor.hash()) {
+                fail("word table hash of " + word, input);
+            }
+            if (words.put(word, cursor.count()) != null) {
+                fail("word table duplicate " + word, input);
+            }
+        }
+        for (Map.Entry<String, Long> item : expected.entrySet()) {
+            Long count = words.get(item.getKey());
+            if (!item.getValue().equals(count)) {
+                fail("word table count of " + item.getKey() + ": expected " + item.getValue() + " but was " + count,
+                        input);
+                return;
+            }
+        }
+    }
+
+    /**
+     * StatsCache ¼صļ¼䣬ָƲͬļʱûл棻
+     * ʹûͳƵĽ벻ʹûʱͬļ޸ĺɾļ
+     */
+    private static void checkCache() throws IOException {
+        Path dir = Files.createTempDirectory("stats-check");
+        try {
+            Path file = dir.resolve("cache.bin");
+            StatsCache.Entry text = new StatsCache.Entry(10, 20, 30, 4, 1, 2, new String[]{"foo", "bar"},
+                    new long[]{3, 1});
+            StatsCache.Entry binary = StatsCache.Entry.binary(40, 50);
+            StatsCache cache = StatsCache.load(file, "options");
+            cache.record("a", text);
+            cache.record("b", binary);
+            cache.save();
+            StatsCache loaded = StatsCache.load(file, "options");
+            check("cache text entry", describe(text), describe(loaded.lookup("a", 10, 20)));
+            check("cache binary entry", describe(binary), describe(loaded.lookup("b", 40, 50)));
+            check("cache modified entry", "null", describe(loaded.lookup("a", 10, 21)));
+            check("cache other options", "null", describe(StatsCache.load(file, "other").previous("a")));
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+            check("cache truncated", "null", describe(StatsCache.load(file, "options").previous("a")));
+
+            Path src = dir.resolve("src");
+            write(src.resolve("A.java"), "/* header */\npublic class A {\n    int count;\n}\n");
+            write(src.resolve("b.py"), "# comment\n\ndef count(): pass\n");
+            write(src.resolve("sub/C.java"), "class C { int count; }\r\nlast line without newline");
+            Files.write(src.resolve("D.java"), new byte[]{'a', 0, 'b', 0, 'c', '\n'});
+            String cachePath = dir.resolve("stats.cache").toString();
+            String expected = summary(run(dir, null, "src", "-n", "100"));
+            check("cache first run", expected, summary(run(dir, null, "src", "-n", "100", "--cache", cachePath)));
+            StringBuilder output = new StringBuilder();
+            check("cache second run", expected,
+                    summary(run(dir, output, "src", "-n", "100", "--cache", cachePath)));
+            check("cache second run hits", true, output.toString().contains("cache=4 hit, 0 miss"));
+            output.setLength(0);
+            check("cache read-ahead run", expected,
+                    summary(run(dir, output, "src", "-n", "100", "--cache", cachePath, "--read-ahead", "2")));
+            check("cache read-ahead skips hits", true, output.toString().contains("0 hit, 0 miss\n"));
+
+            Path a = src.resolve("A.java");
+            FileTime time = Files.getLastModifiedTime(a);
+            write(a, "public class A {\n    String name;\n}\n");
+            Files.setLastModifiedTime(a, FileTime.fromMillis(time.toMillis() + 2000));
+            Files.delete(src.resolve("sub/C.java"));
+            expected = summary(run(dir, null, "src", "-n", "100"));
+            check("cache after changes", expected, summary(run(dir, null, "src", "-n", "100", "--cache", cachePath)));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * WordSketch ¼ز䣬¼ʸͬ sketch Ժϲ
+     * òͬ -n νͳƲͨ --sketch ϲʲʱһξȷͳͬ
+     */
+    private static void checkSketch() throws IOException {
+        Path dir = Files.createTempDirectory("stats-check");
+        try {
+            WordSketch small = new WordSketch(WordSketch.DEFAULT_DEPTH, WordSketch.DEFAULT_WIDTH, 8);
+            WordSketch large = new WordSketch(WordSketch.DEFAULT_DEPTH, WordSketch.DEFAULT_WIDTH, 64);
+            Map<String, Long> expected = new TreeMap<>();
+            for (int i = 0; i < 6; i++) {
+                small.add("w" + (char) ('a' + i), i + 1);
+                large.add("w" + (char) ('a' + i), 10);
+                large.add("x" + (char) ('a' + i), 1);
+                expected.put("w" + (char) ('a' + i), (long) i + 11);
+                expected.put("x" + (char) ('a' + i), 1L);
+            }
+            large.merge(small);
+            check("sketch merge", expected, words(large));
+            check("sketch merge total", 87L, large.getTotal());
+            Path file = dir.resolve("words.sketch");
+            large.save(file);
+            WordSketch loaded = WordSketch.load(file);
+            check("sketch round trip", expected, words(loaded));
+            check("sketch round trip capacity", 64, loaded.getCapacity());
+            check("sketch round trip total", 87L, loaded.getTotal());
+            new WordSketch(2, 1024, 8).save(file);
+            try {
+                WordSketch.load(file);
+                fail("sketch with another count-min size was loaded", null);
+            } catch (IOException e) {
+                //޷ϲ
+            }
+
+            write(dir.resolve("one/A.java"), "int alpha beta;\nbeta gamma\n");
+            write(dir.resolve("two/B.java"), "beta delta\ndelta delta epsilon\n");
+            Map<String, Long> one = topWords(run(dir, null, "one", "-n", "100"));
+            Map<String, Long> two = topWords(run(dir, null, "two", "-n", "100"));
+            Map<String, Long> combined = new TreeMap<>(one);
+            two.forEach((word, count) -> combined.merge(word, count, Long::sum));
+            one.forEach((word, count) -> combined.merge(word, count, Long::sum));
+            String sketch = dir.resolve("runs.sketch").toString();
+            run(dir, null, "one", "--approx", "--sketch", sketch, "-n", "5");
+            run(dir, null, "two", "--approx", "--sketch", sketch, "-n", "100");
+            StringBuilder output = new StringBuilder();
+            run(dir, output, "one", "--approx", "--sketch", sketch, "-n", "5");
+            check("sketch merged runs output", false, output.toString().contains("Exception"));
+            WordSketch merged = WordSketch.load(Paths.get(sketch));
+            check("sketch merged runs", combined, words(merged));
+            check("sketch merged runs capacity", 1600, merged.getCapacity());
+            long total = 0;
+            for (long count : combined.values()) {
+                total += count;
+            }
+            check("sketch merged runs total", total, merged.getTotal());
+
+            Files.write(Paths.get(sketch), new byte[]{1, 2, 3});
+            output.setLength(0);
+            check("sketch corrupted", "null", summary(run(dir, output, "one", "--approx", "--sketch", sketch)));
+            check("sketch corrupted message", true, output.toString().contains("cannot be merged"));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * ѹǶ׵ѹеļѹͬļͳƽͬĿͺ׺ƥĿļ
+     */
+    private static void checkArchives() throws IOException {
+        Path dir = Files.createTempDirectory("stats-check");
+        try {
+            write(dir.resolve("plain/A.java"), "/* a */\nclass A { int count; }\n");
+            write(dir.resolve("plain/inner/B.py"), "# b\ndef count(): pass\r\nlast");
+            ByteArrayOutputStream inner = new ByteArrayOutputStream();
+            try (ZipOutputStream zip = new ZipOutputStream(inner)) {
+                putEntry(zip, "B.py", Files.readAllBytes(dir.resolve("plain/inner/B.py")));
+                putEntry(zip, "notes.txt", "ignored words\n".getBytes(StandardCharsets.UTF_8));
+            }
+            Files.createDirectories(dir.resolve("archived"));
+            try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(dir.resolve("archived/a.jar")))) {
+                putEntry(zip, "src/A.java", Files.readAllBytes(dir.resolve("plain/A.java")));
+                putEntry(zip, "src/Binary.java", new byte[]{'x', 0, 'y', 0});
+                putEntry(zip, "lib/inner.zip", inner.toByteArray());
+            }
+            check("archive", summary(run(dir, null, "plain", "-n", "100")),
+                    summary(run(dir, null, "archived", "-n", "100")));
+            check("archive skipped", "files=0 lines=0 blank=0 comment=0 code=0 words=0 {}",
+                    summary(run(dir, null, "archived", "-n", "100", "--no-archives")));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * IgnoreRules  globêβ /! ȡ¼ļеĹ
+     * ͳʱ --exclude  .gitignoreĬ .git ļ
+     */
+    private static void checkIgnoreRules() throws IOException {
+        for (Object[] item : IGNORE_CASES) {
+            String path = (String) item[1];
+            IgnoreRules rules = IgnoreRules.NONE.child("", Arrays.asList(((String) item[0]).split("\n")));
+            check("ignore " + item[0] + " " + path, item[3],
+                    rules.isIgnored(path, path.substring(path.lastIndexOf('/') + 1), (Boolean) item[2]));
+        }
+        IgnoreRules parent = IgnoreRules.NONE.child("", Arrays.asList("*.tmp", "/local"));
+        IgnoreRules child = parent.child("sub/", Arrays.asList("!keep.tmp", "/local"));
+        check("ignore child negation", false, child.isIgnored("sub/keep.tmp", "keep.tmp", false));
+        check("ignore parent rule", true, child.isIgnored("sub/x.tmp", "x.tmp", false));
+        check("ignore child anchored", true, child.isIgnored("sub/local", "local", false));
+        check("ignore child anchored deeper", false, child.isIgnored("sub/a/local", "local", false));
+        check("ignore parent anchored", true, child.isIgnored("local", "local", false));
+
+        Path dir = Files.createTempDirectory("stats-check");
+        try {
+            write(dir.resolve("src/.gitignore"), "*.gen.java\n");
+            write(dir.resolve("src/A.java"), "class A {}\n");
+            write(dir.resolve("src/B.gen.java"), "class B {}\n");
+            write(dir.resolve("src/.git/C.java"), "class C {}\n");
+            check("gitignore", 1L, run(dir, null, "src").getFileCount());
+            check("exclude overrides gitignore", 2L, run(dir, null, "src", "--exclude", "!B.gen.java").getFileCount());
+            check("exclude", 0L, run(dir, null, "src", "--exclude", "A.java").getFileCount());
+            check("no ignore", 3L, run(dir, null, "src", "--no-ignore").getFileCount());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * PartialResult дĸ˳ͬĵʣǰ׺ѹı߽
+     * ƬͳƺϲĽһͳĿ¼ͬͬĲֽļܺϲ
+     */
+    private static void checkPartials() throws IOException {
+        Path dir = Files.createTempDirectory("stats-check");
+        try {
+            String[] words = {"b", "a", "abc", "ab", "abd", "Abc", "zzz", "zz", "\u00e9t\u00e9", "\u00e9"};
+            WordCounter counter = WordCounter.create(WordCounter.Mode.SYNC);
+            WordCounter.Sink sink = counter.newWorkerCounter();
+            Map<String, Long> expected = new TreeMap<>();
+            for (int i = 0; i < words.length; i++) {
+                sink.add(words[i], i + 1);
+                expected.put(words[i], (long) i + 1);
+            }
+            counter.complete();
+            LineClassifier.Summary lines = new LineClassifier.Summary();
+            lines.add(LineClassifier.Language.JAVA, 1, 2, 3);
+            Path file = dir.resolve("words.partial");
+            PartialResult.write(file, "options", 7, 6, lines, counter);
+            Map<String, Long> read = new TreeMap<>();
+            try (PartialResult.Reader reader = new PartialResult.Reader(file)) {
+                check("partial header", "options 7 6 1/1/2/3", String.format("%s %s %s %s/%s/%s/%s",
+                        reader.fingerprint, reader.fileCount, reader.lineCount,
+                        reader.lines.files[0], reader.lines.blank[0], reader.lines.comment[0], reader.lines.code[0]));
+                String previous = null;
+                while (reader.next()) {
+                    if (previous != null && previous.compareTo(reader.word()) >= 0) {
+                        fail("partial words out of order: " + previous + ", " + reader.word(), null);
+                    }
+                    previous = reader.word();
+                    read.put(reader.word(), reader.count());
+                }
+            }
+            check("partial round trip", expected, read);
+
+            write(dir.resolve("src/A.java"), "/* a */\nclass A { int count; }\n");
+            write(dir.resolve("src/b.py"), "# b\ndef count(): pass\n\nclass B\n");
+            write(dir.resolve("src/sub/C.java"), "class C {\n    int size;\n}\n");
+            write(dir.resolve("src/sub/D.c"), "int main() { return size; }\n");
+            String expectedSummary = summary(run(dir, null, "src", "-n", "100"));
+            String[] partials = new String[4];
+            for (int i = 0; i < partials.length; i++) {
+                partials[i] = dir.resolve("shard" + i + ".partial").toString();
+                run(dir, null, "src", "--shard", i + "/4", "--partial", partials[i]);
+            }
+            check("partial merge", expectedSummary,
+                    summary(run(dir, null, "merge", partials[0], partials[1], partials[2], partials[3], "-n", "100")));
+
+            String other = dir.resolve("other.partial").toString();
+            run(dir, null, "src", "-f", ".java", "--partial", other);
+            StringBuilder output = new StringBuilder();
+            check("partial merge with other options", "null", summary(run(dir, output, "merge", partials[0], other)));
+            check("partial merge with other options message", true, output.toString().contains("merge aborted"));
+            check("partial with approx", "null", summary(run(dir, null, "src", "--approx", "--partial", other)));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * ContentHash Ľķֶηʽ޹أ--dedup ͳƽ벻ȥʱͬ
+     * ͬԲͬСͬݲͬԼļ
+     */
+    private static void checkDedup() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < FUZZ_COUNT; i++) {
+            byte[] input = fuzz(random, FUZZ_BYTES);
+            ContentHash whole = new ContentHash();
+            whole.update(input, 0, input.length);
+            ContentHash pieces = new ContentHash();
+            for (int[] piece : split(input.length, random)) {
+                pieces.update(input, piece[0], piece[1] - piece[0]);
+            }
+            check("content hash in pieces", input, whole.getValue(), pieces.getValue());
+        }
+        ContentHash a = new ContentHash();
+        a.update(new byte[]{'a'}, 0, 1);
+        ContentHash b = new ContentHash();
+        b.update(new byte[]{'a', 0}, 0, 2);
+        check("content hash length", false, a.getValue() == b.getValue());
+
+        Path dir = Files.createTempDirectory("stats-check");
+        try {
+            String same = "# hash comment\n# second\n// slash comment\nint count;\n";
+            write(dir.resolve("src/A.java"), same);
+            write(dir.resolve("src/sub/A.java"), same);
+            write(dir.resolve("src/other/A.java"), same);
+            write(dir.resolve("src/a.py"), same);
+            write(dir.resolve("src/B.java"), same.replace('c', 'k'));
+            write(dir.resolve("src/Empty.java"), "");
+            write(dir.resolve("src/sub/Empty.java"), "");
+            String expected = summary(run(dir, null, "src", "-n", "100"));
+            StringBuilder output = new StringBuilder();
+            check("dedup", expected, summary(run(dir, output, "src", "-n", "100", "--dedup", "-j", "4")));
+            check("dedup found duplicates", true, output.toString().contains("dedup=3 duplicate files"));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static void putEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static Map<String, Long> words(WordSketch sketch) {
+        Map<String, Long> words = new TreeMap<>();
+        sketch.forEach(words::put);
+        return words;
+    }
+
+    private static String describe(StatsCache.Entry entry) {
+        if (entry == null) {
+            return "null";
+        }
+        Map<String, Long> words = new TreeMap<>();
+        for (int i = 0; i < entry.words.length; i++) {
+            words.put(entry.words[i], entry.counts[i]);
+        }
+        return String.format("size=%s time=%s hash=%s lines=%s/%s/%s binary=%s %s", entry.size, entry.lastModified,
+                entry.hash, entry.lineCount, entry.blankLines, entry.commentLines, entry.binary, words);
+    }
+
+    /**
+     *  dir  Statsoutput Ϊ null ʱ
+     */
+    private static StatsResult run(Path dir, StringBuilder output, String... args) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true);
+        StatsResult result = new Stats(args, out, dir).run();
+        out.flush();
+        if (output != null) {
+            output.append(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    /**
+     * ͳƽҪһµĲִ֣ͬĵ˳򲻹̶԰
+     */
+    private static String summary(StatsResult result) {
+        if (result == null) {
+            return "null";
+        }
+        StringBuilder builder = new StringBuilder(String.format("files=%s lines=%s blank=%s comment=%s code=%s words=%s",
+                result.getFileCount(), result.getLineCount(), result.getBlankLines(), result.getCommentLines(),
+                result.getCodeLines(), result.getWordCount()));
+        for (StatsResult.LanguageLines language : result.getLanguages()) {
+            builder.append(String.format(" %s=%s/%s/%s/%s", language.getLanguage(), language.getFileCount(),
+                    language.getBlankLines(), language.getCommentLines(), language.getCodeLines()));
+        }
+        return builder.append(' ').append(topWords(result)).toString();
+    }
+
+    private static Map<String, Long> topWords(StatsResult result) {
+        Map<String, Long> top = new TreeMap<>();
+        if (result != null) {
+            for (Map.Entry<String, Long> word : result.getTopWords()) {
+                top.put(word.getKey(), word.getValue());
+            }
+        }
+        return top;
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * ԭķִʵ֣ ISO-8859-1 ʹÿֽڶӦһַ
+     *
+     * @return 
+     */
+    private static long baseline(byte[] input, Map<String, Long> words) throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(new String(input, StandardCharsets.ISO_8859_1)));
+        long lines = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines++;
+            line = line.trim();
+            if (line.length() > 0) {
+                for (String symbol : line.split(" ")) {
+                    if (isLetter(symbol)) {
+                        words.merge(symbol, 1L, Long::sum);
+                    }
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static boolean isLetter(String str) {
+        if (str == null || str.length() <= 0 || str.trim().length() <= 0) {
+            return false;
+        }
+        for (char c : str.toCharArray()) {
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] fuzz(Random random, byte[] alphabet) {
+        byte[] input = new byte[random.nextInt(200)];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return input;
+    }
+
+    /**
+     *  [0, length) зΪɶΣģ buffer ı߽磬ÿΪ {, յ}
+     */
+    private static int[][] split(int length, Random random) {
+        int count = length == 0 ? 1 : 1 + random.nextInt(Math.min(length, 8));
+        int[][] pieces = new int[count][];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = i == count - 1 ? length : start + random.nextInt(length - start + 1);
+            pieces[i] = new int[]{start, end};
+            start = end;
+        }
+        return pieces;
+    }
+
+    private static void check(String name, Object expected, Object actual) {
+        check(name, null, expected, actual);
+    }
+
+    private static void check(String name, byte[] input, Object expected, Object actual) {
+        if (!expected.equals(actual)) {
+            fail(name + ": expected " + expected + " but was " + actual, input);
+        }
+    }
+
+    private static void fail(String message, byte[] input) {
+        failures++;
+        if (failures <= 10) {
+            System.out.println(message);
+            if (input != null) {
+                System.out.println("\tinput: " + escape(input));
+            }
+        }
+    }
+
+    private static String escape(byte[] input) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (byte b : input) {
+            int c = b & 0xFF;
+            if (c == '\n') {
+                builder.append("\\n");
+            } else if (c == '\r') {
+                builder.append("\\r");
+            } else if (c == '\t') {
+                builder.append("\\t");
+            } else if (c == '"' || c == '\\') {
+                builder.append('\\').append((char) c);
+            } else if (c < 0x20 || c >= 0x7F) {
+                builder.append(String.format("\\x%02X", c));
+            } else {
+                builder.append((char) c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
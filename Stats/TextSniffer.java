@@ -0,0 +1,66 @@
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ļͷһжļǷΪıԼʹõı롣
+ * <p>
+ * ִʺзֻ ASCII ַASCII ݵı루UTF-8ISO-8859-*windows-125*ֱӰֽڴ
+ *  CharsetDecoder루UTF-16GBK ȣҪȽ롣
+ *  git ͬͷ 8000 ֽг 0 ֽڵļΪļ
+ */
+final class TextSniffer {
+
+    /**
+     * ֽ
+     */
+    static final int SNIFF_SIZE = 8000;
+
+    private TextSniffer() {
+    }
+
+    /**
+     * жļı
+     *
+     * @param head    ļͷݣ޸ position
+     * @param charset --encoding ָı룬Ϊ null ʱ UTF-8  BOM  UTF-16 Զʶ
+     * @return ļ null
+     */
+    static Charset detect(ByteBuffer head, Charset charset) {
+        int position = head.position();
+        int limit = Math.min(head.limit(), position + SNIFF_SIZE);
+        if (limit - position >= 2) {
+            int first = head.get(position) & 0xFF;
+            int second = head.get(position + 1) & 0xFF;
+            if ((first == 0xFE && second == 0xFF) || (first == 0xFF && second == 0xFE)) {
+                //UTF-16  BOM жֽ
+                return StandardCharsets.UTF_16;
+            }
+        }
+        if (charset != null && isWide(charset)) {
+            //UTF-16 / UTF-32 ıͰ 0 ֽ
+            return charset;
+        }
+        for (int i = position; i < limit; i++) {
+            if (head.get(i) == 0) {
+                return null;
+            }
+        }
+        return charset != null ? charset : StandardCharsets.UTF_8;
+    }
+
+    /**
+     * С 0x80 ֽǷǱʾӦ ASCII ֱַӰֽڷִ
+     */
+    static boolean isAsciiCompatible(Charset charset) {
+        String name = charset.name();
+        return name.equals("UTF-8") || name.equals("US-ASCII") || name.startsWith("ISO-8859-")
+                || name.startsWith("windows-125");
+    }
+
+    private static boolean isWide(Charset charset) {
+        String name = charset.name();
+        return name.startsWith("UTF-16") || name.startsWith("UTF-32");
+    }
+}
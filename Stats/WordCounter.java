@@ -0,0 +1,568 @@
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ʼṩֲͬĲԱԱ
+ * ֻܺͨ newWorkerCounter() õ Sink 
+ */
+abstract class WordCounter {
+
+    /**
+     * 
+     */
+    enum Mode {
+        /**
+         * ̹߳һ HashMapÿμ
+         */
+        SYNC,
+        /**
+         * ÿ̸߳Լϲ
+         */
+        SHARD,
+        /**
+         *  ConcurrentHashMapʹ LongAdder
+         */
+        ADDER,
+        /**
+         * ÿ߳һ̶С WordSketchΪֵ
+         */
+        APPROX;
+
+        static Mode parse(String name) {
+            for (Mode mode : values()) {
+                if (mode.name().equalsIgnoreCase(name)) {
+                    return mode;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 
+     */
+    interface Visitor {
+        void visit(String word, long count);
+    }
+
+    /**
+     * Ƽʱ¼ĵʸ
+     */
+    static final int DEFAULT_SKETCH_CAPACITY = 1024;
+
+    static WordCounter create(Mode mode) {
+        switch (mode) {
+            case SYNC:
+                return new SyncCounter();
+            case ADDER:
+                return new AdderCounter();
+            case APPROX:
+                return new ApproxCounter(DEFAULT_SKETCH_CAPACITY);
+            case SHARD:
+            default:
+                return new ShardCounter();
+        }
+    }
+
+    /**
+     * ȡĳ߳ʹõļ
+     */
+    abstract Sink newWorkerCounter();
+
+    /**
+     * ߳ʹõļڣɴ WordCounter 
+     */
+    abstract static class Sink {
+
+        /**
+         * ʳһ
+         */
+        abstract void add(String word);
+
+        /**
+         * ʳ count ΣںϲĽ
+         */
+        abstract void add(String word, long count);
+
+        /**
+         * ʳһΣbytes ֻڵڼЧֻ ASCII ַ
+         *
+         * @param hash  String.hashCode() ͬĹϣ
+         */
+        void add(byte[] bytes, int offset, int length, int hash) {
+            add(new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+        }
+
+        /**
+         * ϲһļĵʣֽںϲΪÿʴ String
+         */
+        abstract void addAll(WordTable words);
+    }
+
+    /**
+     * й߳̽ãϲ̵߳Ľ
+     */
+    void complete() {
+    }
+
+    /**
+     * ͬʵĸ
+     */
+    abstract int size();
+
+    abstract void forEach(Visitor visitor);
+
+    /**
+     * ѡִ k ʣάһСΪ k СѣֻбȶѶĵʲŻ룬
+     * ʱ O(V log k)ڴ O(k)Ҫƺȫ
+     */
+    static final class TopWords implements Visitor {
+
+        private final String[] words;
+        private final long[] counts;
+        private int size;
+
+        TopWords(int k) {
+            words = new String[k];
+            counts = new long[k];
+        }
+
+        @Override
+        public void visit(String word, long count) {
+            if (size < words.length) {
+                words[size] = word;
+                counts[size] = count;
+                siftUp(size++);
+            } else if (size > 0 && less(words[0], counts[0], word, count)) {
+                words[0] = word;
+                counts[0] = count;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * ִӴСУͬʱĸ˳
+         */
+        List<Map.Entry<String, Long>> result() {
+            List<Map.Entry<String, Long>> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(new AbstractMap.SimpleEntry<>(words[i], counts[i]));
+            }
+            list.sort(new Comparator<Map.Entry<String, Long>>() {
+                @Override
+                public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+                    int result = Long.compare(o2.getValue(), o1.getValue());
+                    return result != 0 ? result : o1.getKey().compareTo(o2.getKey());
+                }
+            });
+            return list;
+        }
+
+        /**
+         * a Ƿ b 棬ٵġͬʱĸ˳򿿺ں
+         */
+        private static boolean less(String wordA, long countA, String wordB, long countB) {
+            if (countA != countB) {
+                return countA < countB;
+            }
+            return wordA.compareTo(wordB) > 0;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!less(words[index], counts[index], words[parent], counts[parent])) {
+                    break;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int child = (index << 1) + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && less(words[child + 1], counts[child + 1], words[child], counts[child])) {
+                    child++;
+                }
+                if (!less(words[child], counts[child], words[index], counts[index])) {
+                    break;
+                }
+                swap(index, child);
+                index = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+            String word = words[i];
+            words[i] = words[j];
+            words[j] = word;
+            long count = counts[i];
+            counts[i] = counts[j];
+            counts[j] = count;
+        }
+    }
+
+    /**
+     * Ĺ߳ͼ߳ڰֽתΪõ Stringٽ
+     */
+    private static class InterningCounter extends Sink {
+
+        private final SharedCounter shared;
+        private final WordTokenizer.Interner interner = new WordTokenizer.Interner();
+
+        InterningCounter(SharedCounter shared) {
+            this.shared = shared;
+        }
+
+        @Override
+        void add(String word) {
+            shared.add(word);
+        }
+
+        @Override
+        void add(String word, long count) {
+            shared.add(word, count);
+        }
+
+        @Override
+        void add(byte[] bytes, int offset, int length, int hash) {
+            shared.add(interner.intern(bytes, offset, length, hash));
+        }
+
+        @Override
+        void addAll(WordTable words) {
+            shared.addAll(words, interner);
+        }
+    }
+
+    /**
+     * ̹߳õļ߳ͨ InterningCounter 
+     */
+    private abstract static class SharedCounter extends WordCounter {
+
+        @Override
+        Sink newWorkerCounter() {
+            return new InterningCounter(this);
+        }
+
+        abstract void add(String word);
+
+        abstract void add(String word, long count);
+
+        /**
+         * ϲһļĵʣֽɵ̵߳ interner תΪ StringֻеһγֵĵʲŴ String
+         */
+        void addAll(WordTable words, WordTokenizer.Interner interner) {
+            WordTable.Cursor cursor = words.cursor();
+            while (cursor.next()) {
+                add(interner.intern(cursor.bytes(), cursor.offset(), cursor.length(), cursor.hash()), cursor.count());
+            }
+        }
+    }
+
+    /**
+     * ԭеʵ֣ȫ HashMap 
+     */
+    private static class SyncCounter extends SharedCounter {
+
+        private final HashMap<String, Long> hitSymbolMap = new HashMap<>();
+
+        @Override
+        void add(String word) {
+            synchronized (hitSymbolMap) {
+                long count;
+                if (hitSymbolMap.containsKey(word)) {
+                    count = hitSymbolMap.get(word) + 1;
+                } else {
+                    count = 1;
+                }
+                hitSymbolMap.put(word, count);
+            }
+        }
+
+        @Override
+        void add(String word, long count) {
+            synchronized (hitSymbolMap) {
+                Long old = hitSymbolMap.get(word);
+                hitSymbolMap.put(word, (old == null ? 0 : old) + count);
+            }
+        }
+
+        /**
+         * ļֻһ
+         */
+        @Override
+        void addAll(WordTable words, WordTokenizer.Interner interner) {
+            WordTable.Cursor cursor = words.cursor();
+            synchronized (hitSymbolMap) {
+                while (cursor.next()) {
+                    String word = interner.intern(cursor.bytes(), cursor.offset(), cursor.length(), cursor.hash());
+                    Long old = hitSymbolMap.get(word);
+                    hitSymbolMap.put(word, (old == null ? 0 : old) + cursor.count());
+                }
+            }
+        }
+
+        @Override
+        int size() {
+            return hitSymbolMap.size();
+        }
+
+        @Override
+        void forEach(Visitor visitor) {
+            for (Map.Entry<String, Long> entry : hitSymbolMap.entrySet()) {
+                visitor.visit(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * ConcurrentHashMap + LongAdderʱ
+     */
+    private static class AdderCounter extends SharedCounter {
+
+        private final ConcurrentHashMap<String, LongAdder> hitSymbolMap = new ConcurrentHashMap<>();
+
+        @Override
+        void add(String word) {
+            LongAdder adder = hitSymbolMap.get(word);
+            if (adder == null) {
+                adder = hitSymbolMap.computeIfAbsent(word, k -> new LongAdder());
+            }
+            adder.increment();
+        }
+
+        @Override
+        void add(String word, long count) {
+            LongAdder adder = hitSymbolMap.get(word);
+            if (adder == null) {
+                adder = hitSymbolMap.computeIfAbsent(word, k -> new LongAdder());
+            }
+            adder.add(count);
+        }
+
+        @Override
+        int size() {
+            return hitSymbolMap.size();
+        }
+
+        @Override
+        void forEach(Visitor visitor) {
+            for (Map.Entry<String, LongAdder> entry : hitSymbolMap.entrySet()) {
+                visitor.visit(entry.getKey(), entry.getValue().sum());
+            }
+        }
+    }
+
+    /**
+     * ÿ߳һƬϲ
+     */
+    private static class ShardCounter extends WordCounter {
+
+        private final List<LocalCounter> shards = new ArrayList<>();
+        private WordTable merged;
+
+        @Override
+        Sink newWorkerCounter() {
+            LocalCounter shard = new LocalCounter();
+            synchronized (shards) {
+                shards.add(shard);
+            }
+            return shard;
+        }
+
+        @Override
+        void complete() {
+            synchronized (shards) {
+                if (shards.isEmpty()) {
+                    merged = new WordTable();
+                } else {
+                    merged = ForkJoinPool.commonPool().invoke(new MergeTask(shards, 0, shards.size()));
+                }
+                shards.clear();
+            }
+        }
+
+        @Override
+        int size() {
+            return merged.size();
+        }
+
+        @Override
+        void forEach(Visitor visitor) {
+            visitAll(merged, visitor);
+        }
+    }
+
+    /**
+     * ̶߳ռķƬֽڼʱ
+     */
+    private static class LocalCounter extends Sink {
+
+        private final WordTable table = new WordTable();
+
+        @Override
+        void add(String word) {
+            table.add(word, 1);
+        }
+
+        @Override
+        void add(String word, long count) {
+            table.add(word, count);
+        }
+
+        @Override
+        void add(byte[] bytes, int offset, int length, int hash) {
+            table.add(bytes, offset, length, hash, 1);
+        }
+
+        @Override
+        void addAll(WordTable words) {
+            table.addAll(words);
+        }
+    }
+
+    /**
+     * Ƽÿ߳һ WordSketchϲڴС뵥ʸ޹
+     */
+    static class ApproxCounter extends WordCounter {
+
+        private final List<SketchShard> shards = new ArrayList<>();
+        private final WordSketch prototype;
+        private WordSketch merged;
+
+        ApproxCounter(int capacity) {
+            prototype = new WordSketch(WordSketch.DEFAULT_DEPTH, WordSketch.DEFAULT_WIDTH, capacity);
+        }
+
+        @Override
+        Sink newWorkerCounter() {
+            SketchShard shard = new SketchShard(prototype.newEmpty());
+            synchronized (shards) {
+                shards.add(shard);
+            }
+            return shard;
+        }
+
+        @Override
+        void complete() {
+            synchronized (shards) {
+                merged = prototype.newEmpty();
+                for (SketchShard shard : shards) {
+                    merged.merge(shard.sketch);
+                }
+                shards.clear();
+            }
+        }
+
+        /**
+         * ϲĽcomplete() ֮
+         */
+        WordSketch getSketch() {
+            return merged;
+        }
+
+        /**
+         * ¼ĵʸǲͬʵ
+         */
+        @Override
+        int size() {
+            return merged.size();
+        }
+
+        @Override
+        void forEach(Visitor visitor) {
+            merged.forEach(visitor);
+        }
+    }
+
+    private static class SketchShard extends Sink {
+
+        private final WordSketch sketch;
+
+        SketchShard(WordSketch sketch) {
+            this.sketch = sketch;
+        }
+
+        @Override
+        void add(String word) {
+            sketch.add(word, 1);
+        }
+
+        @Override
+        void add(String word, long count) {
+            sketch.add(word, count);
+        }
+
+        @Override
+        void add(byte[] bytes, int offset, int length, int hash) {
+            sketch.add(bytes, offset, length, hash, 1);
+        }
+
+        @Override
+        void addAll(WordTable words) {
+            WordTable.Cursor cursor = words.cursor();
+            while (cursor.next()) {
+                sketch.add(cursor.bytes(), cursor.offset(), cursor.length(), cursor.hash(), cursor.count());
+            }
+        }
+    }
+
+    private static void visitAll(WordTable table, Visitor visitor) {
+        WordTable.Cursor cursor = table.cursor();
+        while (cursor.next()) {
+            visitor.visit(cursor.word(), cursor.count());
+        }
+    }
+
+    /**
+     * κϲ벢кϲٰѽСһ벢ϴһ
+     */
+    private static class MergeTask extends RecursiveTask<WordTable> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<LocalCounter> shards;
+        private final int from;
+        private final int to;
+
+        MergeTask(List<LocalCounter> shards, int from, int to) {
+            this.shards = shards;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected WordTable compute() {
+            if (to - from == 1) {
+                return shards.get(from).table;
+            }
+            int middle = (from + to) >>> 1;
+            MergeTask left = new MergeTask(shards, from, middle);
+            left.fork();
+            WordTable right = new MergeTask(shards, middle, to).compute();
+            return mergeInto(left.join(), right);
+        }
+
+        private static WordTable mergeInto(WordTable a, WordTable b) {
+            WordTable large = a.size() >= b.size() ? a : b;
+            WordTable small = large == a ? b : a;
+            large.addAll(small);
+            return large;
+        }
+    }
+}
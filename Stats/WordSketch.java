@@ -0,0 +1,509 @@
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ̶ڴĽƵʼcount-min sketch ⵥʵĴspace-saving ¼ĵʡ
+ * <p>
+ * count-min ĹֵСʵ 1 - e^-depth ĸʲʵ + e / width * ܴ
+ * space-saving ÿʵĴȥʵֽṹ԰ԪӺϲ
+ * ˿ÿ߳һݣϲҲԱ浽ļһеĽϲ
+ * ֻڵ߳޸ġ
+ */
+final class WordSketch {
+
+    private static final int MAGIC = 0x53544b31;
+    private static final int VERSION = 1;
+
+    /**
+     * count-min  sketch ͬĽ֮һкϲ
+     */
+    static final int DEFAULT_DEPTH = 4;
+    static final int DEFAULT_WIDTH = 1 << 16;
+
+    private final int depth;
+    private final int width;
+    private final long[] table;
+    /**
+     * еʵܴ
+     */
+    private long total;
+
+    /**
+     * space-saving¼ capacity ʣʱµ滻ٵĵʣ̳ĴΪ
+     */
+    private final int capacity;
+    private final String[] keys;
+    private final int[] keyHashes;
+    private final long[] counts;
+    private final long[] errors;
+    private int size;
+    /**
+     * еСѣĿ±ꣻheapIndex ΪĿڶеλ
+     */
+    private final int[] heap;
+    private final int[] heapIndex;
+    /**
+     * ̽ĹϣĿ± + 10 ʾ
+     */
+    private final int[] slots;
+
+    WordSketch(int depth, int width, int capacity) {
+        this.depth = depth;
+        this.width = Integer.highestOneBit(width);
+        this.table = new long[depth * this.width];
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.keyHashes = new int[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.heap = new int[capacity];
+        this.heapIndex = new int[capacity];
+        this.slots = new int[Integer.highestOneBit(capacity) << 2];
+    }
+
+    /**
+     * ͬĿ sketch
+     */
+    WordSketch newEmpty() {
+        return new WordSketch(depth, width, capacity);
+    }
+
+    /**
+     * ʳ count Σbytes ֻڵڼЧֻ ASCII ַ
+     *
+     * @param hash  String.hashCode() ͬĹϣ
+     */
+    void add(byte[] bytes, int offset, int length, int hash, long count) {
+        total += count;
+        int h1 = WordTokenizer.Interner.mix(hash);
+        int h2 = secondHash(hash);
+        int mask = width - 1;
+        for (int row = 0; row < depth; row++) {
+            table[row * width + ((h1 + row * h2) & mask)] += count;
+        }
+
+        int entry = find(bytes, offset, length, hash);
+        if (entry >= 0) {
+            counts[entry] += count;
+            siftDown(heapIndex[entry]);
+            return;
+        }
+        String word = new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        if (size < capacity) {
+            entry = size++;
+            keys[entry] = word;
+            keyHashes[entry] = hash;
+            counts[entry] = count;
+            errors[entry] = 0;
+            heap[entry] = entry;
+            heapIndex[entry] = entry;
+            insertSlot(entry);
+            siftUp(entry);
+        } else {
+            entry = heap[0];
+            removeSlot(entry);
+            keys[entry] = word;
+            keyHashes[entry] = hash;
+            errors[entry] = counts[entry];
+            counts[entry] += count;
+            insertSlot(entry);
+            siftDown(0);
+        }
+    }
+
+    void add(String word, long count) {
+        byte[] bytes = word.getBytes(StandardCharsets.ISO_8859_1);
+        add(bytes, 0, bytes.length, word.hashCode(), count);
+    }
+
+    /**
+     * һ count-min ͬ sketch ϲcount-min Ԫӣ
+     * space-saving ֻһֵ߳ĵʣһ߰ñߵСƣûʱΪ 0Ȼ capacity 
+     * ߼¼ĵʸԲͬɽСһ߾
+     */
+    void merge(WordSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException(String.format("count-min size differs: %sx%s and %sx%s",
+                    depth, width, other.depth, other.width));
+        }
+        for (int i = 0; i < table.length; i++) {
+            table[i] += other.table[i];
+        }
+        total += other.total;
+
+        long minA = size == capacity ? counts[heap[0]] : 0;
+        long minB = other.size == other.capacity ? other.counts[other.heap[0]] : 0;
+        HashMap<String, long[]> union = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            union.put(keys[i], new long[]{counts[i] + minB, errors[i] + minB});
+        }
+        for (int i = 0; i < other.size; i++) {
+            long[] value = union.get(other.keys[i]);
+            if (value == null) {
+                union.put(other.keys[i], new long[]{other.counts[i] + minA, other.errors[i] + minA});
+            } else {
+                value[0] += other.counts[i] - minB;
+                value[1] += other.errors[i] - minB;
+            }
+        }
+        TopCandidates top = new TopCandidates(capacity);
+        for (Map.Entry<String, long[]> item : union.entrySet()) {
+            top.offer(item.getKey(), item.getValue()[0], item.getValue()[1]);
+        }
+        Arrays.fill(slots, 0);
+        size = 0;
+        for (int i = 0; i < top.size; i++) {
+            int entry = size++;
+            keys[entry] = top.words[i];
+            keyHashes[entry] = top.words[i].hashCode();
+            counts[entry] = top.counts[i];
+            errors[entry] = top.errors[i];
+            heap[entry] = entry;
+            heapIndex[entry] = entry;
+            insertSlot(entry);
+            siftUp(entry);
+        }
+    }
+
+    long getTotal() {
+        return total;
+    }
+
+    /**
+     * space-saving ¼ĵʸ
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * ¼ĵʸ
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * count-min ֵϽ e / width * ܴ
+     */
+    long errorBound() {
+        return (long) Math.ceil(Math.E / width * total);
+    }
+
+    /**
+     * Ͻĸ 1 - e^-depth
+     */
+    double confidence() {
+        return 1 - Math.exp(-depth);
+    }
+
+    /**
+     * ֵcount-min  space-saving ϽнСһ
+     */
+    long estimate(String word) {
+        long estimate = countMin(word.hashCode());
+        int entry = find(word);
+        return entry >= 0 ? Math.min(estimate, counts[entry]) : estimate;
+    }
+
+    /**
+     * ʵ½磬ûм¼ĵΪ 0
+     */
+    long lowerBound(String word) {
+        int entry = find(word);
+        return entry >= 0 ? counts[entry] - errors[entry] : 0;
+    }
+
+    /**
+     * ¼ĵʼֵ
+     */
+    void forEach(WordCounter.Visitor visitor) {
+        for (int i = 0; i < size; i++) {
+            visitor.visit(keys[i], Math.min(counts[i], countMin(keyHashes[i])));
+        }
+    }
+
+    /**
+     * дʱļ滻
+     */
+    void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(depth);
+                out.writeInt(width);
+                out.writeInt(capacity);
+                out.writeLong(total);
+                for (long value : table) {
+                    StatsCache.writeVarLong(out, value);
+                }
+                out.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    out.writeUTF(keys[i]);
+                    StatsCache.writeVarLong(out, counts[i]);
+                    StatsCache.writeVarLong(out, errors[i]);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * ȡ sketchļʱ nullcount-min 뵱ǰ汾ͬʱ޷ϲ׳ IOException
+     */
+    static WordSketch load(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a sketch file: " + file);
+            }
+            int depth = in.readInt();
+            int width = in.readInt();
+            if (depth != DEFAULT_DEPTH || width != DEFAULT_WIDTH) {
+                throw new IOException(String.format("%s has a %sx%s count-min table, this version uses %sx%s "
+                        + "and cannot merge with it", file, depth, width, DEFAULT_DEPTH, DEFAULT_WIDTH));
+            }
+            WordSketch sketch = new WordSketch(depth, width, in.readInt());
+            sketch.total = in.readLong();
+            for (int i = 0; i < sketch.table.length; i++) {
+                sketch.table[i] = StatsCache.readVarLong(in);
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                int entry = sketch.size++;
+                sketch.keys[entry] = in.readUTF();
+                sketch.keyHashes[entry] = sketch.keys[entry].hashCode();
+                sketch.counts[entry] = StatsCache.readVarLong(in);
+                sketch.errors[entry] = StatsCache.readVarLong(in);
+                sketch.heap[entry] = entry;
+                sketch.heapIndex[entry] = entry;
+                sketch.insertSlot(entry);
+                sketch.siftUp(entry);
+            }
+            return sketch;
+        }
+    }
+
+    private long countMin(int hash) {
+        int h1 = WordTokenizer.Interner.mix(hash);
+        int h2 = secondHash(hash);
+        int mask = width - 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, table[row * width + ((h1 + row * h2) & mask)]);
+        }
+        return min;
+    }
+
+    /**
+     * ʹ h1 + row * h2 Ϊ±꣬h2 Ϊ
+     */
+    private static int secondHash(int hash) {
+        int h = Integer.rotateLeft(hash * 0x85EBCA6B, 13) * 0xC2B2AE35;
+        return (h ^ (h >>> 16)) | 1;
+    }
+
+    private int find(byte[] bytes, int offset, int length, int hash) {
+        int mask = slots.length - 1;
+        int index = WordTokenizer.Interner.mix(hash) & mask;
+        while (true) {
+            int slot = slots[index];
+            if (slot == 0) {
+                return -1;
+            }
+            int entry = slot - 1;
+            if (keyHashes[entry] == hash && equals(keys[entry], bytes, offset, length)) {
+                return entry;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private int find(String word) {
+        int hash = word.hashCode();
+        int mask = slots.length - 1;
+        int index = WordTokenizer.Interner.mix(hash) & mask;
+        while (true) {
+            int slot = slots[index];
+            if (slot == 0) {
+                return -1;
+            }
+            int entry = slot - 1;
+            if (keyHashes[entry] == hash && keys[entry].equals(word)) {
+                return entry;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private static boolean equals(String key, byte[] bytes, int offset, int length) {
+        if (key.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insertSlot(int entry) {
+        int mask = slots.length - 1;
+        int index = WordTokenizer.Interner.mix(keyHashes[entry]) & mask;
+        while (slots[index] != 0) {
+            index = (index + 1) & mask;
+        }
+        slots[index] = entry + 1;
+    }
+
+    /**
+     * ɾѺͬһصĿǰƣ̽Ĳȷ
+     */
+    private void removeSlot(int entry) {
+        int mask = slots.length - 1;
+        int index = WordTokenizer.Interner.mix(keyHashes[entry]) & mask;
+        while (slots[index] != entry + 1) {
+            index = (index + 1) & mask;
+        }
+        int hole = index;
+        index = (index + 1) & mask;
+        while (slots[index] != 0) {
+            int home = WordTokenizer.Interner.mix(keyHashes[slots[index] - 1]) & mask;
+            //home  (hole, index] ֮ʱƵλ
+            if (((index - home) & mask) >= ((index - hole) & mask)) {
+                slots[hole] = slots[index];
+                hole = index;
+            }
+            index = (index + 1) & mask;
+        }
+        slots[hole] = 0;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[heap[position]] >= counts[heap[parent]]) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int child = (position << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[heap[child]] >= counts[heap[position]]) {
+                break;
+            }
+            swap(position, child);
+            position = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int entry = heap[i];
+        heap[i] = heap[j];
+        heap[j] = entry;
+        heapIndex[heap[i]] = i;
+        heapIndex[heap[j]] = j;
+    }
+
+    /**
+     * ϲʱѡ capacity 
+     */
+    private static final class TopCandidates {
+        final String[] words;
+        final long[] counts;
+        final long[] errors;
+        int size;
+
+        TopCandidates(int capacity) {
+            words = new String[capacity];
+            counts = new long[capacity];
+            errors = new long[capacity];
+        }
+
+        void offer(String word, long count, long error) {
+            if (size < words.length) {
+                set(size, word, count, error);
+                siftUp(size++);
+            } else if (count > counts[0]) {
+                set(0, word, count, error);
+                siftDown(0);
+            }
+        }
+
+        private void set(int i, String word, long count, long error) {
+            words[i] = word;
+            counts[i] = count;
+            errors[i] = error;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (counts[index] >= counts[parent]) {
+                    break;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int child = (index << 1) + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && counts[child + 1] < counts[child]) {
+                    child++;
+                }
+                if (counts[child] >= counts[index]) {
+                    break;
+                }
+                swap(index, child);
+                index = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+            String word = words[i];
+            words[i] = words[j];
+            words[j] = word;
+            long count = counts[i];
+            counts[i] = counts[j];
+            counts[j] = count;
+            long error = errors[i];
+            errors[i] = errors[j];
+            errors[j] = error;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * ֽΪĿѰַʵֽڱڹֽУ long[] У
+ * ֱ÷ִõĹϣңʱκζ
+ * <p>
+ * λֻĿ±꣬ʱֻҪ·±ꣻĿ˳棬ͺϲܿ졣
+ * ֻڵ߳ʹá
+ */
+final class WordTable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * λĿ± + 10 ʾ
+     */
+    private int[] slots = new int[INITIAL_CAPACITY];
+    /**
+     * Ŀϣ arena еλúͳȡ
+     */
+    private int[] hashes = new int[INITIAL_CAPACITY >> 1];
+    private int[] offsets = new int[INITIAL_CAPACITY >> 1];
+    private int[] lengths = new int[INITIAL_CAPACITY >> 1];
+    private long[] counts = new long[INITIAL_CAPACITY >> 1];
+    private int size;
+    /**
+     * еʵֽ
+     */
+    private byte[] arena = new byte[INITIAL_CAPACITY * 8];
+    private int arenaSize;
+
+    /**
+     * ʳ count Σbytes ֻڵڼЧ
+     *
+     * @param hash  String.hashCode() ͬĹϣ
+     */
+    void add(byte[] bytes, int offset, int length, int hash, long count) {
+        int mask = slots.length - 1;
+        int index = WordTokenizer.Interner.mix(hash) & mask;
+        while (true) {
+            int slot = slots[index];
+            if (slot == 0) {
+                slots[index] = insert(bytes, offset, length, hash, count) + 1;
+                if (size > (slots.length >> 1)) {
+                    grow();
+                }
+                return;
+            }
+            int entry = slot - 1;
+            if (hashes[entry] == hash && lengths[entry] == length
+                    && Arrays.equals(arena, offsets[entry], offsets[entry] + length, bytes, offset, offset + length)) {
+                counts[entry] += count;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * ʳ count Σֻܰ ASCII ַںϲĽ
+     */
+    void add(String word, long count) {
+        byte[] bytes = word.getBytes(StandardCharsets.ISO_8859_1);
+        add(bytes, 0, bytes.length, word.hashCode(), count);
+    }
+
+    /**
+     * һļϲֱʹñĹϣ¼
+     */
+    void addAll(WordTable other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.arena, other.offsets[i], other.lengths[i], other.hashes[i], other.counts[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * պʹãܴı·λ֮ÿնҪλ
+     */
+    void clear() {
+        if (slots.length > INITIAL_CAPACITY * 64) {
+            slots = new int[INITIAL_CAPACITY];
+        } else {
+            Arrays.fill(slots, 0);
+        }
+        size = 0;
+        arenaSize = 0;
+    }
+
+    /**
+     * ˳Ŀ
+     */
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Ŀα꣬word() ʱŴ String
+     */
+    final class Cursor {
+        private int index = -1;
+
+        boolean next() {
+            return ++index < size;
+        }
+
+        String word() {
+            return new String(arena, offsets[index], lengths[index], StandardCharsets.ISO_8859_1);
+        }
+
+        long count() {
+            return counts[index];
+        }
+
+        /**
+         * ʵֽڵ飬 offset() ʼ length() ֽڣ޸ĺʧЧ
+         */
+        byte[] bytes() {
+            return arena;
+        }
+
+        int offset() {
+            return offsets[index];
+        }
+
+        int length() {
+            return lengths[index];
+        }
+
+        /**
+         *  String.hashCode() ͬĹϣ
+         */
+        int hash() {
+            return hashes[index];
+        }
+    }
+
+    private int insert(byte[] bytes, int offset, int length, int hash, long count) {
+        if (size == hashes.length) {
+            int capacity = size << 1;
+            hashes = Arrays.copyOf(hashes, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        if (arenaSize + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length << 1, arenaSize + length));
+        }
+        System.arraycopy(bytes, offset, arena, arenaSize, length);
+        int entry = size++;
+        hashes[entry] = hash;
+        offsets[entry] = arenaSize;
+        lengths[entry] = length;
+        counts[entry] = count;
+        arenaSize += length;
+        return entry;
+    }
+
+    private void grow() {
+        slots = new int[slots.length << 1];
+        int mask = slots.length - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int index = WordTokenizer.Interner.mix(hashes[entry]) & mask;
+            while (slots[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            slots[index] = entry + 1;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ֽɨķִԭ readLine() -> trim() -> split(" ") -> isLetter ȫһ£
+ * ΪÿһСÿһʴ
+ * <p>
+ * ÿȥβ <= 0x20 ַ󰴿ոзֻ֣ͳȫ ASCII ĸɵĵʣ
+ * нΪ \n\r  \r\nһûлзʱͬ
+ */
+final class WordTokenizer {
+
+    /**
+     * շִʽbytes ֻڻصڼЧ
+     */
+    interface Sink {
+        void onWord(byte[] bytes, int offset, int length, int hash);
+    }
+
+    private final Sink sink;
+    /**
+     * ǰʵֽڣܿԽ ByteBufferҪ
+     */
+    private byte[] word = new byte[64];
+    private int wordLength;
+    /**
+     * ǰʵĹϣ㷽ʽ String.hashCode() ͬ
+     */
+    private int wordHash;
+    /**
+     * ǰʵĿǰΪֹǷȫΪĸ
+     */
+    private boolean wordValid;
+    /**
+     * ǰǷѾֹǿհַģ trim() ȥ׿հף
+     */
+    private boolean lineContent;
+    /**
+     * ǰдн֮Ƿκֽ
+     */
+    private boolean lineHasBytes;
+    /**
+     * Ƿ֮ĿհУԼοհ׵ĵһһֽ
+     */
+    private boolean inGap;
+    private byte gapFirst;
+    private byte gapLast;
+    /**
+     * һֽǷΪ \rڰ \r\n һ
+     */
+    private boolean lastCR;
+    private long lineCount;
+
+    WordTokenizer(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * ʼһļ
+     */
+    void reset() {
+        wordLength = 0;
+        wordHash = 0;
+        wordValid = false;
+        lineContent = false;
+        lineHasBytes = false;
+        inGap = false;
+        lastCR = false;
+        lineCount = 0;
+    }
+
+    /**
+     * ɨ buffer  position  limit ֽ֮ڣ޸ buffer  position
+     */
+    void feed(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit; i++) {
+            accept(buffer.get(i));
+        }
+    }
+
+    void feed(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            accept(bytes[i]);
+        }
+    }
+
+    /**
+     * ļһ
+     */
+    void finish() {
+        if (lineHasBytes) {
+            endLine();
+        }
+    }
+
+    /**
+     * ǰļ
+     */
+    long getLineCount() {
+        return lineCount;
+    }
+
+    private void accept(byte b) {
+        if (b == '\n') {
+            if (lastCR) {
+                lastCR = false;
+            } else {
+                endLine();
+            }
+            return;
+        }
+        if (b == '\r') {
+            endLine();
+            lastCR = true;
+            return;
+        }
+        lastCR = false;
+        lineHasBytes = true;
+        if ((b & 0xFF) <= ' ') {
+            if (lineContent) {
+                if (!inGap) {
+                    inGap = true;
+                    gapFirst = b;
+                }
+                gapLast = b;
+            }
+            return;
+        }
+        if (inGap) {
+            //հ֮䣺հ׵ĵһֽڲǿոʱǰһʣһֽڲǿոʱںһ
+            if (gapFirst == ' ') {
+                emitWord();
+            }
+            startWord(gapLast == ' ');
+            inGap = false;
+        } else if (!lineContent) {
+            startWord(true);
+        }
+        lineContent = true;
+        if (wordValid) {
+            if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z')) {
+                if (wordLength == word.length) {
+                    byte[] grown = new byte[word.length << 1];
+                    System.arraycopy(word, 0, grown, 0, wordLength);
+                    word = grown;
+                }
+                word[wordLength++] = b;
+                wordHash = 31 * wordHash + b;
+            } else {
+                wordValid = false;
+            }
+        }
+    }
+
+    private void startWord(boolean valid) {
+        wordLength = 0;
+        wordHash = 0;
+        wordValid = valid;
+    }
+
+    private void emitWord() {
+        if (wordValid && wordLength > 0) {
+            sink.onWord(word, 0, wordLength, wordHash);
+        }
+    }
+
+    private void endLine() {
+        if (lineContent) {
+            //βհ׻ᱻ trim() ȥһ
+            emitWord();
+        }
+        lineCount++;
+        lineContent = false;
+        lineHasBytes = false;
+        inGap = false;
+        wordValid = false;
+    }
+
+    /**
+     * ֽʽĵӳΪ Stringͬһֻڵһγʱ String
+     * ̰߳ȫÿ߳һ
+     */
+    static final class Interner {
+
+        private String[] keys = new String[1024];
+        private int[] hashes = new int[1024];
+        private int size;
+
+        String intern(byte[] bytes, int offset, int length, int hash) {
+            int mask = keys.length - 1;
+            int index = mix(hash) & mask;
+            while (true) {
+                String key = keys[index];
+                if (key == null) {
+                    key = new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+                    keys[index] = key;
+                    hashes[index] = hash;
+                    if (++size > (keys.length >> 1)) {
+                        grow();
+                    }
+                    return key;
+                }
+                if (hashes[index] == hash && equals(key, bytes, offset, length)) {
+                    return key;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        private static boolean equals(String key, byte[] bytes, int offset, int length) {
+            if (key.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (key.charAt(i) != bytes[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void grow() {
+            String[] oldKeys = keys;
+            int[] oldHashes = hashes;
+            keys = new String[oldKeys.length << 1];
+            hashes = new int[oldKeys.length << 1];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int index = mix(oldHashes[i]) & mask;
+                    while (keys[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    hashes[index] = oldHashes[i];
+                }
+            }
+        }
+
+        /**
+         * ɢ String ϣĵλ̽ľۼ
+         */
+        static int mix(int hash) {
+            int h = hash * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
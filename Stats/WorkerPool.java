@@ -0,0 +1,209 @@
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ͬʱĽ̰߳߳ŶӣŲСڵǰ߳ͣȡļ
+ * Զģʽ¶ʱݶлѹ߳̿ʱ CPU ռõ
+ * ߳̾ȴʱ٣лѹ̴߳ڶȡʱӡ
+ */
+final class WorkerPool {
+
+    private static final long ADJUST_INTERVAL_MILLIS = 250;
+    /**
+     * ߳æµʱռȵڸֵʱ߳
+     */
+    private static final double SHRINK_UTILIZATION = 0.5;
+    /**
+     * ߳æµʱռȸڸֵ CPU ʱռæµʱı GROW_CPU_RATIO ʱ߳
+     */
+    private static final double GROW_UTILIZATION = 0.9;
+    private static final double GROW_CPU_RATIO = 0.7;
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final OperatingSystemMXBean OS_MX_BEAN = ManagementFactory.getOperatingSystemMXBean();
+
+    private final int processors = Runtime.getRuntime().availableProcessors();
+    private final int minActive;
+    private final int maxActive;
+    private int active;
+    private boolean finished;
+    private int lowestActive;
+    private int highestActive;
+
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+    private final List<StatsMetrics.Worker> metrics = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private long lastNanos;
+    private long[] lastBusy;
+    private long[] lastCpu;
+    private long lastProcessCpu;
+
+    /**
+     * @param minActive Զ
+     * @param maxActive Զޣ߳
+     * @param active    ʼ
+     */
+    WorkerPool(int minActive, int maxActive, int active) {
+        this.minActive = minActive;
+        this.maxActive = maxActive;
+        this.active = active;
+        this.lowestActive = active;
+        this.highestActive = active;
+    }
+
+    /**
+     * ̶߳
+     */
+    static WorkerPool fixed(int size) {
+        return new WorkerPool(size, size, size);
+    }
+
+    /**
+     *  CPU ʼӵ
+     */
+    static WorkerPool adaptive() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return new WorkerPool(1, processors * 2, processors);
+    }
+
+    int size() {
+        return maxActive;
+    }
+
+    boolean isAdaptive() {
+        return minActive != maxActive;
+    }
+
+    /**
+     * ǼǱΪ threads.size() ߳
+     */
+    void register(Thread thread, StatsMetrics.Worker worker) {
+        threads.add(thread);
+        metrics.add(worker);
+    }
+
+    /**
+     * Ϊ index ߳ȡһļǰãڻΧʱȴ
+     */
+    synchronized void awaitTurn(int index) throws InterruptedException {
+        while (index >= active && !finished) {
+            wait();
+        }
+    }
+
+    /**
+     * Ѿȡ꣬ͣ߳Ա˳
+     */
+    synchronized void finish() {
+        finished = true;
+        notifyAll();
+    }
+
+    synchronized int getLowestActive() {
+        return lowestActive;
+    }
+
+    synchronized int getHighestActive() {
+        return highestActive;
+    }
+
+    /**
+     * ʼʱ̶߳ʱκ
+     */
+    void start(final FileQueue queue) {
+        if (!isAdaptive()) {
+            return;
+        }
+        lastNanos = System.nanoTime();
+        lastBusy = new long[maxActive];
+        lastCpu = new long[maxActive];
+        lastProcessCpu = processCpuTime();
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "stats-worker-pool");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                adjust(queue.size());
+            }
+        }, ADJUST_INTERVAL_MILLIS, ADJUST_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * ĵ CPU ʱ䣬֧ʱ -1
+     */
+    private static long processCpuTime() {
+        if (OS_MX_BEAN instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) OS_MX_BEAN).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private void adjust(int queueSize) {
+        long now = System.nanoTime();
+        long elapsed = Math.max(now - lastNanos, 1);
+        int current;
+        synchronized (this) {
+            current = active;
+        }
+        long busy = 0;
+        long cpu = 0;
+        boolean cpuSupported = THREAD_MX_BEAN.isThreadCpuTimeSupported();
+        int count = Math.min(threads.size(), maxActive);
+        for (int i = 0; i < count; i++) {
+            long workerBusy = metrics.get(i).busyNanos(now);
+            long workerCpu = cpuSupported ? THREAD_MX_BEAN.getThreadCpuTime(threads.get(i).getId()) : -1;
+            if (i < current) {
+                busy += workerBusy - lastBusy[i];
+                if (workerCpu >= 0 && lastCpu[i] >= 0) {
+                    cpu += workerCpu - lastCpu[i];
+                }
+            }
+            lastBusy[i] = workerBusy;
+            lastCpu[i] = workerCpu;
+        }
+        long processCpu = processCpuTime();
+        //æµ CPU ʱҲڵȴ CPUѾռкʱͬ
+        boolean cpuSaturated = processCpu < 0
+                || (double) (processCpu - lastProcessCpu) / elapsed >= processors * GROW_CPU_RATIO;
+        lastProcessCpu = processCpu;
+        lastNanos = now;
+
+        double utilization = (double) busy / elapsed / current;
+        //֧߳ CPU ʱʱ޷жǷڶȡϣ߳
+        double cpuRatio = cpuSupported && busy > 0 ? (double) cpu / busy : 1.0;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            if (utilization < SHRINK_UTILIZATION && queueSize < active && active > minActive) {
+                active--;
+            } else if (utilization > GROW_UTILIZATION && cpuRatio < GROW_CPU_RATIO && !cpuSaturated
+                    && queueSize >= active && active < maxActive) {
+                active++;
+                notifyAll();
+            }
+            lowestActive = Math.min(lowestActive, active);
+            highestActive = Math.max(highestActive, active);
+        }
+    }
+}
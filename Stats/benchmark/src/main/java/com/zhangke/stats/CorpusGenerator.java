@@ -0,0 +1,153 @@
+package com.zhangke.stats;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * ڻ׼ԵĴļʴӹ̶СĴʱаƫбֲѡȡ
+ * ͿУʹִĸ֧ܱǡ
+ * <p>
+ * Уjava -cp benchmarks.jar com.zhangke.stats.CorpusGenerator [Ŀ¼] [ļ] [ļС] [ʱС]
+ */
+public final class CorpusGenerator {
+
+    /**
+     * ÿļµļµļУʹһ
+     */
+    private static final int FILES_PER_DIRECTORY = 64;
+    private static final String[] PUNCTUATION = {"{", "}", "(", ");", "=", "+", "//", "*", "[]", "->"};
+
+    private CorpusGenerator() {
+    }
+
+    /**
+     * ɴʱֻ ASCII ĸ
+     */
+    public static String[] vocabulary(int size, long seed) {
+        Random random = new Random(seed);
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder builder = new StringBuilder();
+            int value = i;
+            do {
+                builder.append((char) ('a' + value % 26));
+                value /= 26;
+            } while (value > 0);
+            //伸ĸģʵʵĳȷֲ
+            int extra = random.nextInt(6);
+            for (int j = 0; j < extra; j++) {
+                char c = (char) ('a' + random.nextInt(26));
+                builder.append(random.nextInt(8) == 0 ? Character.toUpperCase(c) : c);
+            }
+            words[i] = builder.toString();
+        }
+        return words;
+    }
+
+    /**
+     * ƫбֲѡȡʣʱǰĵʳֵøƵ
+     */
+    public static String pick(String[] vocabulary, Random random) {
+        double x = random.nextDouble();
+        return vocabulary[(int) (vocabulary.length * x * x * x)];
+    }
+
+    /**
+     * һδԼ size ֽڵĴı
+     */
+    public static byte[] content(int size, String[] vocabulary, Random random) {
+        StringBuilder builder = new StringBuilder(size + 128);
+        while (builder.length() < size) {
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                builder.append('\n');
+                continue;
+            }
+            int indent = random.nextInt(4);
+            for (int i = 0; i < indent; i++) {
+                builder.append(kind == 1 ? "\t" : "    ");
+            }
+            int tokens = 1 + random.nextInt(10);
+            for (int i = 0; i < tokens; i++) {
+                if (i > 0) {
+                    builder.append(' ');
+                }
+                if (random.nextInt(5) == 0) {
+                    builder.append(PUNCTUATION[random.nextInt(PUNCTUATION.length)]);
+                } else {
+                    builder.append(pick(vocabulary, random));
+                }
+            }
+            builder.append(kind == 2 ? "\r\n" : "\n");
+        }
+        return builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * ɵУڵԼ
+     */
+    public static String[] tokens(int count, String[] vocabulary, long seed) {
+        Random random = new Random(seed);
+        String[] tokens = new String[count];
+        for (int i = 0; i < count; i++) {
+            tokens[i] = pick(vocabulary, random);
+        }
+        return tokens;
+    }
+
+    /**
+     *  root  fileCount  .java ļ
+     *
+     * @return ɵ
+     */
+    public static long generate(Path root, int fileCount, int fileSize, int vocabularySize, long seed)
+            throws IOException {
+        String[] vocabulary = vocabulary(vocabularySize, seed);
+        Random random = new Random(seed);
+        long lines = 0;
+        for (int i = 0; i < fileCount; i++) {
+            int group = i / FILES_PER_DIRECTORY;
+            Path dir = root.resolve("d" + (group % 16)).resolve("g" + group);
+            Files.createDirectories(dir);
+            byte[] content = content(fileSize, vocabulary, random);
+            Files.write(dir.resolve("F" + i + ".java"), content);
+            lines += countLines(content);
+        }
+        return lines;
+    }
+
+    /**
+     *  readLine() ͬͳƷʽ
+     */
+    public static long countLines(byte[] content) {
+        long lines = 0;
+        boolean pending = false;
+        for (int i = 0; i < content.length; i++) {
+            byte b = content[i];
+            if (b == '\n' || b == '\r') {
+                lines++;
+                pending = false;
+                if (b == '\r' && i + 1 < content.length && content[i + 1] == '\n') {
+                    i++;
+                }
+            } else {
+                pending = true;
+            }
+        }
+        return pending ? lines + 1 : lines;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.out.println("÷CorpusGenerator [Ŀ¼] [ļ] [ļС] [ʱС]");
+            return;
+        }
+        long lines = generate(Paths.get(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]), 42);
+        System.out.println(String.format("\t%s lines generated.", lines));
+    }
+}
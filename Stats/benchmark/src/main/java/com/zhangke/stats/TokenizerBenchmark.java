@@ -0,0 +1,130 @@
+package com.zhangke.stats;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ִ׼ԭ readLine() + split(" ") + isLetter 밴ֽɨ WordTokenizer Աȡ
+ * е lines  words Ϊÿ봦͵
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenizerBenchmark {
+
+    @Param("1048576")
+    int size;
+
+    @Param("10000")
+    int vocabulary;
+
+    private byte[] content;
+
+    /**
+     * ÿ봦͵
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long lines;
+        public long words;
+
+        @Setup(Level.Iteration)
+        public void clean() {
+            lines = 0;
+            words = 0;
+        }
+    }
+
+    /**
+     * ÿ̶߳ķִ Stats Ĺ߳ͬ
+     */
+    @State(Scope.Thread)
+    public static class TokenizerState implements WordTokenizer.Sink {
+        final WordTokenizer tokenizer = new WordTokenizer(this);
+        final WordTokenizer.Interner interner = new WordTokenizer.Interner();
+        String last;
+        long words;
+
+        @Override
+        public void onWord(byte[] bytes, int offset, int length, int hash) {
+            last = interner.intern(bytes, offset, length, hash);
+            words++;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        content = CorpusGenerator.content(size, CorpusGenerator.vocabulary(vocabulary, 42), new Random(42));
+    }
+
+    @Benchmark
+    public String legacySplit(Counters counters) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(content), StandardCharsets.UTF_8));
+        String last = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            counters.lines++;
+            line = line.trim();
+            if (line.length() > 0) {
+                for (String symbol : line.split(" ")) {
+                    if (isLetter(symbol)) {
+                        last = symbol;
+                        counters.words++;
+                    }
+                }
+            }
+        }
+        return last;
+    }
+
+    @Benchmark
+    public String byteTokenizer(TokenizerState state, Counters counters) {
+        state.words = 0;
+        state.tokenizer.reset();
+        state.tokenizer.feed(content, 0, content.length);
+        state.tokenizer.finish();
+        counters.lines += state.tokenizer.getLineCount();
+        counters.words += state.words;
+        return state.last;
+    }
+
+    /**
+     * ԭ Stats еʵ
+     */
+    private static boolean isLetter(String str) {
+        if (str == null || str.length() <= 0 || str.trim().length() <= 0) {
+            return false;
+        }
+        char[] chars = str.toCharArray();
+        for (char c : chars) {
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+package com.zhangke.stats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ʼԻ׼߳ͬʱȽ sync / shard / adder ֲԵԼ approx ƼĿ
+ * add Ϊ String addBytes ΪֱִӴֽں͹ϣ·
+ * addAll Ϊÿļͳɺļ WordTable ϲ·
+ *  -t ޸߳
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class WordCounterBenchmark {
+
+    /**
+     * гȣ 2 
+     */
+    private static final int TOKEN_COUNT = 1 << 16;
+    /**
+     * ϲõļÿļĵ 2 
+     */
+    private static final int FILE_COUNT = 64;
+    private static final int FILE_WORDS = 1 << 10;
+
+    @Param({"SYNC", "SHARD", "ADDER", "APPROX"})
+    String mode;
+
+    @Param("10000")
+    int vocabulary;
+
+    String[] tokens;
+    /**
+     * еʵ ASCII ֽһִ Sink ʽͬ
+     */
+    byte[] tokenBytes;
+    int[] tokenOffsets;
+    int[] tokenHashes;
+    /**
+     * ÿļͳƳĵʱ
+     */
+    WordTable[] files;
+    WordCounter counter;
+
+    @State(Scope.Thread)
+    public static class Worker {
+        WordCounter.Sink counter;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setup(WordCounterBenchmark benchmark) {
+            counter = benchmark.counter.newWorkerCounter();
+            next = (int) Thread.currentThread().getId() * 7919;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setupTokens() {
+        tokens = CorpusGenerator.tokens(TOKEN_COUNT, CorpusGenerator.vocabulary(vocabulary, 42), 42);
+        tokenOffsets = new int[TOKEN_COUNT + 1];
+        tokenHashes = new int[TOKEN_COUNT];
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+            tokenOffsets[i] = builder.length();
+            tokenHashes[i] = tokens[i].hashCode();
+            builder.append(tokens[i]);
+        }
+        tokenOffsets[TOKEN_COUNT] = builder.length();
+        tokenBytes = builder.toString().getBytes(StandardCharsets.ISO_8859_1);
+        files = new WordTable[FILE_COUNT];
+        for (int i = 0; i < FILE_COUNT; i++) {
+            files[i] = new WordTable();
+            for (int j = 0; j < FILE_WORDS; j++) {
+                int token = (i * FILE_WORDS + j) & (TOKEN_COUNT - 1);
+                files[i].add(tokenBytes, tokenOffsets[token], tokenOffsets[token + 1] - tokenOffsets[token],
+                        tokenHashes[token], 1);
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setupCounter() {
+        counter = WordCounter.create(WordCounter.Mode.valueOf(mode));
+    }
+
+    @TearDown(Level.Iteration)
+    public void merge() {
+        counter.complete();
+    }
+
+    @Benchmark
+    public void add(Worker worker) {
+        worker.counter.add(tokens[worker.next++ & (TOKEN_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public void addBytes(Worker worker) {
+        int token = worker.next++ & (TOKEN_COUNT - 1);
+        worker.counter.add(tokenBytes, tokenOffsets[token], tokenOffsets[token + 1] - tokenOffsets[token],
+                tokenHashes[token]);
+    }
+
+    /**
+     * ÿβϲһļ FILE_WORDS 
+     */
+    @Benchmark
+    public void addAll(Worker worker) {
+        worker.counter.addAll(files[worker.next++ & (FILE_COUNT - 1)]);
+    }
+}